@@ -0,0 +1,41 @@
+package com.upgrad.quora.api.config;
+
+import com.upgrad.quora.api.filter.QueryStatisticsFilter;
+import com.upgrad.quora.service.common.QueryCountingDataSource;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * Counts the SQL statements and rows of every request and reports them in response headers, so that N+1
+ * loads show up in development and fail the query budgets of the tests. Enabled with
+ * quora.query-statistics.enabled, which the dev and test profiles set.
+ */
+@Configuration
+@ConditionalOnProperty(name = "quora.query-statistics.enabled", havingValue = "true")
+public class QueryStatisticsConfiguration {
+
+    /**
+     * Wraps the DataSource so that its statements and rows are counted.
+     */
+    @Bean
+    public static BeanPostProcessor queryCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(final Object bean, final String beanName) {
+                if (bean instanceof DataSource && !(bean instanceof QueryCountingDataSource)) {
+                    return new QueryCountingDataSource((DataSource) bean);
+                }
+                return bean;
+            }
+        };
+    }
+
+    @Bean
+    public QueryStatisticsFilter queryStatisticsFilter() {
+        return new QueryStatisticsFilter();
+    }
+}
@@ -1,15 +1,23 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.upgrad.quora.api.model.*;
 import com.upgrad.quora.service.business.AnswerService;
+import com.upgrad.quora.service.common.KeysetPage;
+import com.upgrad.quora.service.dao.AnswerSummary;
+import com.upgrad.quora.service.dao.QuestionDetail;
 import com.upgrad.quora.service.entity.AnswerEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidCursorException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -18,9 +26,14 @@ import java.util.List;
 @RequestMapping("/")
 public class AnswerController {
 
+    private static final String NEXT_CURSOR_HEADER = "next-cursor";
+
     @Autowired
     private AnswerService answerService;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
     /**
      * Create answer to a question
      *
@@ -91,31 +104,66 @@ public class AnswerController {
     }
 
     /**
-     * Fetch all the answer to a question
+     * Fetch a page of the answers to a question
      *
      * @param questionId  : Answer ID that you want to Delete
      * @param accessToken : access-token to authenticate
-     * @return All the answer to the Question
+     * @param cursor      : cursor from the next-cursor header of the previous page
+     * @param limit       : maximum number of answers in the page
+     * @return A page of the answers to the Question, with the cursor of the next page in the next-cursor
+     * header
      * @throws AuthorizationFailedException : Returns authorization failed exception
      * @throws InvalidQuestionException     : If Question id is invalid returns invalid Question id
      *                                      response
+     * @throws InvalidCursorException       : If the cursor is invalid
      */
     @GetMapping("/answer/all/{questionId}")
     public ResponseEntity<List<AnswerDetailsResponse>> getAllAnswersToQuestion(
             @RequestHeader("authorization") final String accessToken,
-            @PathVariable("questionId") String questionId)
-            throws AuthorizationFailedException, InvalidQuestionException {
-        List<AnswerEntity> answers = answerService.getAllAnswersToQuestion(questionId, accessToken);
-        List<AnswerDetailsResponse> answerDetailsResponses = new ArrayList<>();
-        for (AnswerEntity answerEntity : answers) {
+            @PathVariable("questionId") String questionId,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit)
+            throws AuthorizationFailedException, InvalidQuestionException, InvalidCursorException {
+        KeysetPage<AnswerSummary> page = answerService.getAllAnswersToQuestion(questionId, accessToken, cursor, limit);
+        List<AnswerDetailsResponse> answerDetailsResponses = new ArrayList<>(page.getItems().size());
+        for (AnswerSummary answer : page.getItems()) {
             AnswerDetailsResponse answerDetailsResponse = new AnswerDetailsResponse();
-            answerDetailsResponse.setId(answerEntity.getUuid());
-            answerDetailsResponse.setQuestionContent(answerEntity.getQuestionEntity().getContent());
-            answerDetailsResponse.setAnswerContent(answerEntity.getAnswer());
+            answerDetailsResponse.setId(answer.getUuid());
+            answerDetailsResponse.setQuestionContent(answer.getQuestionContent());
+            answerDetailsResponse.setAnswerContent(answer.getAnswer());
             answerDetailsResponses.add(answerDetailsResponse);
         }
-        return new ResponseEntity<List<AnswerDetailsResponse>>(answerDetailsResponses, HttpStatus.OK);
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNextCursor() != null) {
+            headers.add(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return new ResponseEntity<List<AnswerDetailsResponse>>(answerDetailsResponses, headers, HttpStatus.OK);
     }
 
-
+    /**
+     * Get all answers to a question as one streamed JSON array, for clients that need the complete list.
+     *
+     * @param accessToken : access-token to authenticate
+     * @param questionId  : question whose answers are listed
+     * @return streamed array of all answers to the question
+     * @throws AuthorizationFailedException : Returns authorization failed exception
+     * @throws InvalidQuestionException     : If question id is invalid returns invalid question response
+     */
+    @GetMapping(path = "/answer/all/{questionId}", params = "stream=true",
+            produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllAnswersToQuestion(
+            @RequestHeader("authorization") final String accessToken,
+            @PathVariable("questionId") String questionId)
+            throws AuthorizationFailedException, InvalidQuestionException {
+        QuestionDetail question = answerService.authorizeAnswerListing(questionId, accessToken);
+        StreamingResponseBody body = outputStream -> JsonArrayWriter.write(objectMapper, outputStream,
+                writer -> answerService.forEachAnswerToQuestion(question, answer -> writer.accept(
+                        new AnswerDetailsResponse()
+                                .id(answer.getUuid())
+                                .questionContent(answer.getQuestionContent())
+                                .answerContent(answer.getAnswer()))));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        return new ResponseEntity<StreamingResponseBody>(body, headers, HttpStatus.OK);
+    }
 }
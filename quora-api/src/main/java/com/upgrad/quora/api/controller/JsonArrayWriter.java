@@ -0,0 +1,54 @@
+package com.upgrad.quora.api.controller;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes the elements produced by a source as one JSON array with Jackson's streaming generator, so that
+ * each element can be released as soon as it has been written. The first element is flushed right away
+ * and later ones in batches, which keeps the time to first byte independent of the size of the list.
+ */
+final class JsonArrayWriter {
+
+    private static final int FLUSH_EVERY = 100;
+
+    /**
+     * Produces the elements of the array by passing each of them to the given writer.
+     */
+    interface Source<T> {
+        void forEach(Consumer<T> writer);
+    }
+
+    private JsonArrayWriter() {
+    }
+
+    static <T> void write(final ObjectMapper objectMapper, final OutputStream outputStream, final Source<T> source)
+            throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.writeStartArray();
+            final int[] written = {0};
+            try {
+                source.forEach(element -> {
+                    try {
+                        generator.writeObject(element);
+                        if (++written[0] % FLUSH_EVERY == 1) {
+                            generator.flush();
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            generator.writeEndArray();
+        }
+    }
+}
@@ -1,15 +1,29 @@
 package com.upgrad.quora.api.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.upgrad.quora.api.model.*;
+import com.upgrad.quora.service.business.CreatedQuestion;
 import com.upgrad.quora.service.business.QuestionService;
+import com.upgrad.quora.service.cache.LatestQuestions;
+import com.upgrad.quora.service.cache.QuestionSuggestions;
+import com.upgrad.quora.service.cache.SimilarQuestions;
+import com.upgrad.quora.service.common.KeysetPage;
+import com.upgrad.quora.service.common.OffsetPage;
+import com.upgrad.quora.service.dao.QuestionSummary;
+import com.upgrad.quora.service.dao.RelatedQuestion;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.DuplicateQuestionException;
+import com.upgrad.quora.service.exception.InvalidCursorException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
@@ -19,57 +33,191 @@ import java.util.List;
 @RequestMapping("/")
 public class QuestionController {
 
+    private static final String NEXT_CURSOR_HEADER = "next-cursor";
+
     @Autowired private QuestionService questionService;
 
+    @Autowired private ObjectMapper objectMapper;
+
     /**
      * Create Question
      *
      * @param questionRequest
      * @param authorization
-     * @return QuestionResponse
+     * @return QuestionResponse, with the existing questions similar to the new one
      * @throws AuthorizationFailedException
+     * @throws DuplicateQuestionException
      */
     @PostMapping("/question/create")
     public ResponseEntity<QuestionResponse> createQuestion(
             QuestionRequest questionRequest, @RequestHeader("authorization") final String authorization)
-            throws AuthorizationFailedException {
+            throws AuthorizationFailedException, DuplicateQuestionException {
         // Create new Question Entity
         QuestionEntity questionEntity = new QuestionEntity();
         questionEntity.setContent(questionRequest.getContent());
         questionEntity.setDate(ZonedDateTime.now());
 
         // Authorize the user
-        final QuestionEntity createdQuestion =
+        final CreatedQuestion createdQuestion =
                 questionService.createQuestion(authorization, questionEntity);
 
-
         QuestionResponse questionResponse =
                 new QuestionResponse().id(questionEntity.getUuid()).status("QUESTION CREATED");
+        for (SimilarQuestions.Match similar : createdQuestion.getSimilarQuestions()) {
+            questionResponse.addSimilarQuestionsItem(new SimilarQuestion().id(similar.getUuid())
+                    .content(similar.getContent()).similarity(similar.getSimilarity()));
+        }
         return new ResponseEntity<QuestionResponse>(questionResponse, HttpStatus.OK);
     }
 
     /**
-     * Fetch all questions
+     * Fetch all questions, one page at a time
      *
      * @param authorization
-     * @return List of all questions
+     * @param cursor value of the next-cursor header of the previous page, absent for the first page
+     * @param limit page size
+     * @return Page of questions, with the cursor of the next page in the next-cursor header
      * @throws AuthorizationFailedException
+     * @throws InvalidCursorException
      */
     @GetMapping("/question/all")
     public ResponseEntity<List<QuestionDetailsResponse>> getAllQuestions(
-            @RequestHeader("authorization") final String authorization)
+            @RequestHeader("authorization") final String authorization,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit)
+            throws AuthorizationFailedException, InvalidCursorException {
+        KeysetPage<QuestionSummary> page = questionService.getAllQuestions(authorization, cursor, limit);
+
+        final List<QuestionDetailsResponse> questionResponseList = new ArrayList<>(page.getItems().size());
+
+        for (QuestionSummary question : page.getItems()) {
+            questionResponseList.add(toDetailsResponse(question));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNextCursor() != null) {
+            headers.add(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return new ResponseEntity<List<QuestionDetailsResponse>>(questionResponseList, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Search the content of all questions, one page at a time
+     *
+     * @param authorization
+     * @param terms words to search for
+     * @param cursor value of the next-cursor header of the previous page, absent for the first page
+     * @param limit page size
+     * @return Page of the questions containing every word, most relevant first, with the cursor of the next
+     * page in the next-cursor header
+     * @throws AuthorizationFailedException
+     * @throws InvalidCursorException
+     */
+    @GetMapping("/question/search")
+    public ResponseEntity<List<QuestionDetailsResponse>> searchQuestions(
+            @RequestHeader("authorization") final String authorization,
+            @RequestParam("q") final String terms,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit)
+            throws AuthorizationFailedException, InvalidCursorException {
+        OffsetPage<QuestionSummary> page = questionService.searchQuestions(authorization, terms, cursor, limit);
+
+        final List<QuestionDetailsResponse> questionResponseList = new ArrayList<>(page.getItems().size());
+        for (QuestionSummary question : page.getItems()) {
+            questionResponseList.add(toDetailsResponse(question));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNextCursor() != null) {
+            headers.add(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return new ResponseEntity<List<QuestionDetailsResponse>>(questionResponseList, headers, HttpStatus.OK);
+    }
+
+    /**
+     * Suggest existing questions while the user types a new one
+     *
+     * @param authorization
+     * @param prefix start of the question typed so far
+     * @param limit maximum number of suggestions
+     * @return questions starting with the prefix
+     * @throws AuthorizationFailedException
+     */
+    @GetMapping("/question/suggest")
+    public ResponseEntity<List<QuestionSuggestionResponse>> suggestQuestions(
+            @RequestHeader("authorization") final String authorization,
+            @RequestParam("prefix") final String prefix,
+            @RequestParam(value = "limit", required = false) final Integer limit)
             throws AuthorizationFailedException {
-        List<QuestionEntity> allQuestions = questionService.getAllQuestions(authorization);
+        List<QuestionSuggestions.Suggestion> suggestions = questionService.suggestQuestions(authorization, prefix, limit);
+        List<QuestionSuggestionResponse> suggestionResponses = new ArrayList<>(suggestions.size());
+        for (QuestionSuggestions.Suggestion suggestion : suggestions) {
+            suggestionResponses.add(new QuestionSuggestionResponse().id(suggestion.getUuid()).content(suggestion.getContent()));
+        }
+        return new ResponseEntity<List<QuestionSuggestionResponse>>(suggestionResponses, HttpStatus.OK);
+    }
 
-        final List<QuestionDetailsResponse> questionResponseList = new ArrayList<>();
+    /**
+     * Fetch the questions posted last, without reading the database
+     *
+     * @param authorization
+     * @param limit maximum number of questions
+     * @return latest questions, latest first
+     * @throws AuthorizationFailedException
+     */
+    @GetMapping("/question/latest")
+    public ResponseEntity<List<LatestQuestionResponse>> getLatestQuestions(
+            @RequestHeader("authorization") final String authorization,
+            @RequestParam(value = "limit", required = false) final Integer limit)
+            throws AuthorizationFailedException {
+        List<LatestQuestions.Question> questions = questionService.getLatestQuestions(authorization, limit);
+        List<LatestQuestionResponse> latestResponses = new ArrayList<>(questions.size());
+        for (LatestQuestions.Question question : questions) {
+            latestResponses.add(new LatestQuestionResponse().id(question.getUuid()).content(question.getContent())
+                    .postedAt(question.getDate() == null ? null : question.getDate().toOffsetDateTime()));
+        }
+        return new ResponseEntity<List<LatestQuestionResponse>>(latestResponses, HttpStatus.OK);
+    }
 
-        // Extract Uuid and content from each QuestionResponse entity
-        for (QuestionEntity question : allQuestions) {
-            String uuid = question.getUuid();
-            String content = question.getContent();
-            questionResponseList.add(new QuestionDetailsResponse().id(uuid).content(content));
+    /**
+     * Fetch the questions related to a question
+     *
+     * @param authorization
+     * @param questionId uuid of the question
+     * @return related questions, most related first
+     * @throws AuthorizationFailedException
+     * @throws InvalidQuestionException
+     */
+    @GetMapping("/question/{questionId}/related")
+    public ResponseEntity<List<SimilarQuestion>> getRelatedQuestions(
+            @RequestHeader("authorization") final String authorization,
+            @PathVariable("questionId") final String questionId)
+            throws AuthorizationFailedException, InvalidQuestionException {
+        List<RelatedQuestion> relatedQuestions = questionService.getRelatedQuestions(authorization, questionId);
+        List<SimilarQuestion> relatedResponses = new ArrayList<>(relatedQuestions.size());
+        for (RelatedQuestion related : relatedQuestions) {
+            relatedResponses.add(new SimilarQuestion().id(related.getUuid()).content(related.getContent())
+                    .similarity(related.getScore()));
         }
-        return new ResponseEntity<List<QuestionDetailsResponse>>(questionResponseList, HttpStatus.OK);
+        return new ResponseEntity<List<SimilarQuestion>>(relatedResponses, HttpStatus.OK);
+    }
+
+    /**
+     * Fetch all questions as one streamed JSON array, for clients that need the complete list. Questions
+     * are written as they are read from the database, so neither side holds the whole list in memory.
+     *
+     * @param authorization
+     * @return streamed array of all questions
+     * @throws AuthorizationFailedException
+     */
+    @GetMapping(path = "/question/all", params = "stream=true", produces = MediaType.APPLICATION_JSON_UTF8_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAllQuestions(
+            @RequestHeader("authorization") final String authorization)
+            throws AuthorizationFailedException {
+        questionService.authorizeQuestionListing(authorization);
+        StreamingResponseBody body = outputStream -> JsonArrayWriter.write(objectMapper, outputStream,
+                writer -> questionService.forEachQuestion(question -> writer.accept(toDetailsResponse(question))));
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.APPLICATION_JSON_UTF8);
+        return new ResponseEntity<StreamingResponseBody>(body, headers, HttpStatus.OK);
     }
 
     /**
@@ -99,29 +247,35 @@ public class QuestionController {
     }
 
     /**
-     * Fetch all questions posted by a user
+     * Fetch all questions posted by a user, or one page at a time if a cursor or a limit is given
      *
      * @param accessToken
      * @param userId
-     * @return List<QuestionDetailsResponse>
+     * @param cursor value of the next-cursor header of the previous page, absent for the first page
+     * @param limit page size
+     * @return The user's questions, or a page of them with the cursor of the next page in the next-cursor header
      * @throws AuthorizationFailedException
      * @throws UserNotFoundException
+     * @throws InvalidCursorException
      */
     @GetMapping("question/all/{userId}")
     public ResponseEntity<List<QuestionDetailsResponse>> getQuestionByUserId(
             @RequestHeader("authorization") final String accessToken,
-            @PathVariable("userId") String userId)
-            throws AuthorizationFailedException, UserNotFoundException {
-        List<QuestionEntity> questions = questionService.getAllQuestionsByUser(userId, accessToken);
-        List<QuestionDetailsResponse> questionDetailResponses = new ArrayList<>();
-        for (QuestionEntity questionEntity : questions) {
-            QuestionDetailsResponse questionDetailResponse = new QuestionDetailsResponse();
-            questionDetailResponse.setId(questionEntity.getUuid());
-            questionDetailResponse.setContent(questionEntity.getContent());
-            questionDetailResponses.add(questionDetailResponse);
+            @PathVariable("userId") String userId,
+            @RequestParam(value = "cursor", required = false) final String cursor,
+            @RequestParam(value = "limit", required = false) final Integer limit)
+            throws AuthorizationFailedException, UserNotFoundException, InvalidCursorException {
+        KeysetPage<QuestionSummary> page = questionService.getAllQuestionsByUser(userId, accessToken, cursor, limit);
+        List<QuestionDetailsResponse> questionDetailResponses = new ArrayList<>(page.getItems().size());
+        for (QuestionSummary question : page.getItems()) {
+            questionDetailResponses.add(toDetailsResponse(question));
+        }
+        HttpHeaders headers = new HttpHeaders();
+        if (page.getNextCursor() != null) {
+            headers.add(NEXT_CURSOR_HEADER, page.getNextCursor());
         }
         return new ResponseEntity<List<QuestionDetailsResponse>>(
-                questionDetailResponses, HttpStatus.OK);
+                questionDetailResponses, headers, HttpStatus.OK);
     }
 
     /**
@@ -145,4 +299,12 @@ public class QuestionController {
         questionDeleteResponse.setStatus("QUESTION DELETED");
         return new ResponseEntity<QuestionDeleteResponse>(questionDeleteResponse, HttpStatus.OK);
     }
+
+    private static QuestionDetailsResponse toDetailsResponse(final QuestionSummary question) {
+        return new QuestionDetailsResponse()
+                .id(question.getUuid())
+                .content(question.getContent())
+                .answerCount(question.getAnswerCount())
+                .lastAnswerAt(question.getLastAnswerAt() == null ? null : question.getLastAnswerAt().toOffsetDateTime());
+    }
 }
@@ -9,6 +9,7 @@ import com.upgrad.quora.service.business.UserAuthService;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthenticationFailedException;
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
 import com.upgrad.quora.service.exception.SignOutRestrictedException;
 import com.upgrad.quora.service.exception.SignUpRestrictedException;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,6 +20,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.Base64;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 public class UserController {
@@ -30,11 +32,13 @@ public class UserController {
      * This method is for user sign-up. Method receives the object of SignupUserRequest type with
      * its attributes being set.
      * @param signupUserRequest
-     * @return SignupUserResponse - UUID of the user created.
+     * @return SignupUserResponse - UUID of the user created, once the password has been hashed.
      * @throws SignUpRestrictedException - if the username or email already exist in the database.
+     * @throws ServiceUnavailableException - if too many passwords are waiting to be hashed.
      */
     @PostMapping("/user/signup")
-    public ResponseEntity<SignupUserResponse> signup(SignupUserRequest signupUserRequest) throws SignUpRestrictedException {
+    public CompletableFuture<ResponseEntity<SignupUserResponse>> signup(SignupUserRequest signupUserRequest)
+            throws SignUpRestrictedException, ServiceUnavailableException {
         UserEntity userEntity = new UserEntity();
         userEntity.setFirstName(signupUserRequest.getFirstName());
         userEntity.setLastName(signupUserRequest.getLastName());
@@ -47,12 +51,13 @@ public class UserController {
         userEntity.setRole("nonadmin");
         userEntity.setContactNumber(signupUserRequest.getContactNumber());
 
-        String uuid = userAuthService.signup(userEntity);
-        SignupUserResponse userResponse =
-                new SignupUserResponse();
-        userResponse.setId(uuid);
-        userResponse.setStatus("USER SUCCESSFULLY REGISTERED");
-        return new ResponseEntity<SignupUserResponse>(userResponse, HttpStatus.CREATED);
+        return userAuthService.signup(userEntity).thenApply(uuid -> {
+            SignupUserResponse userResponse =
+                    new SignupUserResponse();
+            userResponse.setId(uuid);
+            userResponse.setStatus("USER SUCCESSFULLY REGISTERED");
+            return new ResponseEntity<SignupUserResponse>(userResponse, HttpStatus.CREATED);
+        });
 
     }
 
@@ -60,27 +65,28 @@ public class UserController {
      * This method is for a user to sign-in.
      *
      * @param authorization request header used for the basic authentication
-     * @return Sign-in resopnse which has userId and access-token in response header.
+     * @return Sign-in resopnse which has userId and access-token in response header, once the password has been verified.
      * @throws AuthenticationFailedException : if username or password are invalid
+     * @throws ServiceUnavailableException : if too many passwords are waiting to be hashed
      */
     @PostMapping(path = "/user/signin")
-    public ResponseEntity<SigninResponse> signIn(
+    public CompletableFuture<ResponseEntity<SigninResponse>> signIn(
             @RequestHeader("authorization") final String authorization)
-            throws AuthenticationFailedException {
+            throws AuthenticationFailedException, ServiceUnavailableException {
 
         byte[] decode = Base64.getDecoder().decode(authorization.split("Basic ")[1]);
         String decodedText = new String(decode);
         String[] decodedArray = decodedText.split(":");
-        UserAuthEntity userAuthEntity = userAuthService.signIn(decodedArray[0], decodedArray[1]);
+        return userAuthService.signIn(decodedArray[0], decodedArray[1]).thenApply(userAuthEntity -> {
+            HttpHeaders headers = new HttpHeaders();
+            headers.add("access-token", userAuthEntity.getAccessToken());
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.add("access-token", userAuthEntity.getAccessToken());
+            SigninResponse signinResponse = new SigninResponse();
+            signinResponse.setId(userAuthEntity.getUserEntity().getUuid());
+            signinResponse.setMessage("SIGNED IN SUCCESSFULLY");
 
-        SigninResponse signinResponse = new SigninResponse();
-        signinResponse.setId(userAuthEntity.getUserEntity().getUuid());
-        signinResponse.setMessage("SIGNED IN SUCCESSFULLY");
-
-        return new ResponseEntity<SigninResponse>(signinResponse, headers, HttpStatus.OK);
+            return new ResponseEntity<SigninResponse>(signinResponse, headers, HttpStatus.OK);
+        });
     }
 
     /**
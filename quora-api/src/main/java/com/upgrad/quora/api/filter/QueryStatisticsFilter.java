@@ -0,0 +1,112 @@
+package com.upgrad.quora.api.filter;
+
+import com.upgrad.quora.service.common.QueryStatistics;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Counts the SQL statements and rows of each request and reports them in the "query-count" and
+ * "query-rows" response headers. The headers are written just before the response body, so a streamed
+ * response reports the queries made before its first byte. The statistics are kept in a request attribute
+ * and bound again when an asynchronous request is dispatched back to complete.
+ */
+public class QueryStatisticsFilter extends OncePerRequestFilter {
+
+    public static final String QUERY_COUNT_HEADER = "query-count";
+    public static final String QUERY_ROWS_HEADER = "query-rows";
+
+    private static final String STATISTICS_ATTRIBUTE = QueryStatisticsFilter.class.getName() + ".statistics";
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+
+    @Override
+    protected void doFilterInternal(final HttpServletRequest request, final HttpServletResponse response,
+                                    final FilterChain filterChain) throws ServletException, IOException {
+        QueryStatistics statistics = (QueryStatistics) request.getAttribute(STATISTICS_ATTRIBUTE);
+        if (statistics == null) {
+            statistics = new QueryStatistics();
+            request.setAttribute(STATISTICS_ATTRIBUTE, statistics);
+        }
+        final StatisticsResponse statisticsResponse = new StatisticsResponse(response, statistics);
+        final QueryStatistics previous = QueryStatistics.bind(statistics);
+        try {
+            filterChain.doFilter(request, statisticsResponse);
+        } finally {
+            QueryStatistics.restore(previous);
+        }
+        if (!request.isAsyncStarted()) {
+            statisticsResponse.writeHeaders();
+        }
+    }
+
+    /**
+     * Writes the headers once, before the body is written or the response is committed otherwise.
+     */
+    private static class StatisticsResponse extends HttpServletResponseWrapper {
+
+        private final QueryStatistics statistics;
+
+        private boolean headersWritten;
+
+        private StatisticsResponse(final HttpServletResponse response, final QueryStatistics statistics) {
+            super(response);
+            this.statistics = statistics;
+        }
+
+        private void writeHeaders() {
+            if (headersWritten || isCommitted()) {
+                return;
+            }
+            headersWritten = true;
+            setHeader(QUERY_COUNT_HEADER, Long.toString(statistics.getStatements()));
+            setHeader(QUERY_ROWS_HEADER, Long.toString(statistics.getRows()));
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeHeaders();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeHeaders();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeHeaders();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(final int sc) throws IOException {
+            writeHeaders();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(final int sc, final String msg) throws IOException {
+            writeHeaders();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(final String location) throws IOException {
+            writeHeaders();
+            super.sendRedirect(location);
+        }
+    }
+}
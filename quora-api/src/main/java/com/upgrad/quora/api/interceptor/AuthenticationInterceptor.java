@@ -0,0 +1,31 @@
+package com.upgrad.quora.api.interceptor;
+
+import com.upgrad.quora.service.business.AuthorizationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Resolves the authorization header once per request. The resolved principal is kept for the rest of
+ * the request, and the services decide which error to return for it.
+ */
+@Component
+public class AuthenticationInterceptor extends HandlerInterceptorAdapter {
+
+    private static final String AUTHORIZATION_HEADER = "authorization";
+
+    @Autowired
+    private AuthorizationService authorizationService;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        final String accessToken = request.getHeader(AUTHORIZATION_HEADER);
+        if (accessToken != null) {
+            authorizationService.resolve(accessToken);
+        }
+        return true;
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
@@ -15,6 +16,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
+@ActiveProfiles("test")
 @AutoConfigureMockMvc
 
 public class AdminControllerTest {
@@ -28,7 +30,8 @@ public class AdminControllerTest {
     public void deleteWithNonExistingAccessToken() throws Exception {
         mvc.perform(MockMvcRequestBuilders.delete("/admin/user/database_uuid4").header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(QueryBudget.atMost(1));
     }
 
     //This test case passes when you try to delete the user but the role of the user corresponding to the JWT token entered is nonadmin.
@@ -36,7 +39,8 @@ public class AdminControllerTest {
     public void deleteWithnonadminAsRole() throws Exception {
         mvc.perform(MockMvcRequestBuilders.delete("/admin/user/database_uuid4").header("authorization", "database_accesstoken1"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"))
+                .andExpect(QueryBudget.atMost(2));
     }
 
 
@@ -45,7 +49,8 @@ public class AdminControllerTest {
     public void deleteNonExistingUser() throws Exception {
         mvc.perform(MockMvcRequestBuilders.delete("/admin/user/non_existing_user_uuid").header("authorization", "database_accesstoken"))
                 .andExpect(status().isNotFound())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"))
+                .andExpect(QueryBudget.atMost(3));
     }
 
 
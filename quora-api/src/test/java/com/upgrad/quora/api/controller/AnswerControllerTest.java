@@ -1,21 +1,35 @@
 package com.upgrad.quora.api.controller;
 
-
+import com.jayway.jsonpath.JsonPath;
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
+@ActiveProfiles("test")
 @AutoConfigureMockMvc
 
 public class AnswerControllerTest {
@@ -23,13 +37,30 @@ public class AnswerControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<String> createdQuestions = new ArrayList<>();
+
+    /**
+     * Delete the questions created by the test through the API, their answers with them, so that
+     * quora_test.sql stays the only data other tests see.
+     */
+    @After
+    public void deleteCreatedQuestions() throws Exception {
+        for (String questionId : createdQuestions) {
+            mvc.perform(MockMvcRequestBuilders.delete("/question/delete/" + questionId).header("authorization", "database_accesstoken1"))
+                    .andExpect(status().isOk());
+        }
+    }
 
     //This test case passes when you try to create the answer but the JWT token entered does not exist in the database.
     @Test
     public void createAnswerWithNonExistingAccessToken() throws Exception {
         mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(QueryBudget.atMost(1));
     }
 
     //This test case passes when you try to create the answer but the user corresponding to the JWT token entered is signed out of the application.
@@ -37,13 +68,32 @@ public class AnswerControllerTest {
     public void createAnswerWithSignedOutUser() throws Exception {
         mvc.perform(MockMvcRequestBuilders.post("/question/database_question_uuid/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"))
+                .andExpect(QueryBudget.atMost(2));
     }
 
     //This test case passes when you try to create the answer for the question which does not exist in the database.
     @Test
     public void createAnswerForNonExistingQuestion() throws Exception {
         mvc.perform(MockMvcRequestBuilders.post("/question/non_existing_question_uuid/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"))
+                .andExpect(QueryBudget.atMost(3));
+    }
+
+    //This test case passes when you try to create the answer for a question which is still cached but was deleted on another instance.
+    @Test
+    public void createAnswerForQuestionDeletedElsewhere() throws Exception {
+        final String questionId = createQuestion();
+        createAnswer(questionId, "answer caching the question");
+        jdbcTemplate.update("delete from question where uuid = ?", questionId);
+        createdQuestions.remove(questionId);
+
+        mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"))
+                .andExpect(QueryBudget.atMost(2));
+        mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/create?answer=my_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
                 .andExpect(status().isNotFound())
                 .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
     }
@@ -53,7 +103,8 @@ public class AnswerControllerTest {
     public void editAnswerWithNonExistingAccessToken() throws Exception {
         mvc.perform(MockMvcRequestBuilders.put("/answer/edit/database_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(QueryBudget.atMost(1));
     }
 
     //This test case passes when you try to edit the answer and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
@@ -61,7 +112,8 @@ public class AnswerControllerTest {
     public void editAnswerWithSignedOutUser() throws Exception {
         mvc.perform(MockMvcRequestBuilders.put("/answer/edit/database_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"))
+                .andExpect(QueryBudget.atMost(2));
     }
 
     //This test case passes when you try to edit the answer which does not exist in the database.
@@ -69,7 +121,8 @@ public class AnswerControllerTest {
     public void editNonExistingAnswer() throws Exception {
         mvc.perform(MockMvcRequestBuilders.put("/answer/edit/non_existing_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
                 .andExpect(status().isNotFound())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ANS-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ANS-001"))
+                .andExpect(QueryBudget.atMost(3));
     }
 
     //This test case passes when you try to edit the answer and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in but the corresponding user is not the owner of the answer.
@@ -77,7 +130,8 @@ public class AnswerControllerTest {
     public void editAnswerWithoutOwnership() throws Exception {
         mvc.perform(MockMvcRequestBuilders.put("/answer/edit/database_answer_uuid?content=edited_answer").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"))
+                .andExpect(QueryBudget.atMost(4));
     }
 
     //This test case passes when you try to delete the answer but the JWT token entered does not exist in the database.
@@ -85,7 +139,8 @@ public class AnswerControllerTest {
     public void deleteAnswerWithNonExistingAccessToken() throws Exception {
         mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/database_answer_uuid").header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(QueryBudget.atMost(1));
     }
 
     //This test case passes when you try to delete the answer and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
@@ -93,7 +148,8 @@ public class AnswerControllerTest {
     public void deleteAnswerWithSignedOutUser() throws Exception {
         mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/database_answer_uuid").header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"))
+                .andExpect(QueryBudget.atMost(2));
     }
 
     //This test case passes when you try to delete the answer which does not exist in the database.
@@ -101,7 +157,8 @@ public class AnswerControllerTest {
     public void deleteNonExistingAnswer() throws Exception {
         mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/non_existing_answer_uuid").header("authorization", "database_accesstoken1"))
                 .andExpect(status().isNotFound())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ANS-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ANS-001"))
+                .andExpect(QueryBudget.atMost(3));
     }
 
     //This test case passes when you try to delete the answer and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in but the corresponding user is not the owner of the answer or he is not the admin.
@@ -109,7 +166,8 @@ public class AnswerControllerTest {
     public void deleteAnswerWithoutOwnership() throws Exception {
         mvc.perform(MockMvcRequestBuilders.delete("/answer/delete/database_answer_uuid").header("authorization", "database_accesstoken2"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"))
+                .andExpect(QueryBudget.atMost(4));
     }
 
     //This test case passes when you try to get all the answers posted for a specific question but the JWT token entered does not exist in the database.
@@ -117,7 +175,8 @@ public class AnswerControllerTest {
     public void getAllAnswersToQuestionWithNonExistingAccessToken() throws Exception {
         mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid").header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(QueryBudget.atMost(1));
     }
 
     //This test case passes when you try to get all the answers posted for a specific question and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
@@ -125,7 +184,8 @@ public class AnswerControllerTest {
     public void getAllAnswersToQuestionWithSignedOutUser() throws Exception {
         mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid").header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"))
+                .andExpect(QueryBudget.atMost(2));
     }
 
     //This test case passes when you try to get all the answers posted for a specific question which does not exist in the database.
@@ -133,8 +193,77 @@ public class AnswerControllerTest {
     public void getAllAnswersToNonExistingQuestion() throws Exception {
         mvc.perform(MockMvcRequestBuilders.get("/answer/all/non_existing_question_uuid").header("authorization", "database_accesstoken"))
                 .andExpect(status().isNotFound())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"))
+                .andExpect(QueryBudget.atMost(3));
     }
 
+    //This test case passes when you get the answers to a question one page at a time and follow the next-cursor to the last page.
+    @Test
+    public void getAllAnswersToQuestionFollowingCursor() throws Exception {
+        final String questionId = createQuestion();
+        final String first = createAnswer(questionId, "first answer");
+        final String second = createAnswer(questionId, "second answer");
+        final String third = createAnswer(questionId, "third answer");
+
+        final MvcResult page = mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId + "?limit=2").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("next-cursor"))
+                .andExpect(QueryBudget.atMost(3))
+                .andReturn();
+        final String body = page.getResponse().getContentAsString();
+        assertEquals(Arrays.asList(first, second), JsonPath.<List<String>>read(body, "$[*].id"));
+        assertEquals(Arrays.asList("first answer", "second answer"), JsonPath.<List<String>>read(body, "$[*].answerContent"));
+
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId + "?limit=2&cursor=" + page.getResponse().getHeader("next-cursor")).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(third))
+                .andExpect(header().doesNotExist("next-cursor"))
+                .andExpect(QueryBudget.atMost(3));
+    }
+
+    //This test case passes when you get the answers to a question which has none and the page is empty without a next-cursor.
+    @Test
+    public void getAllAnswersToQuestionWithoutAnswers() throws Exception {
+        final String questionId = createQuestion();
+        mvc.perform(MockMvcRequestBuilders.get("/answer/all/" + questionId).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(0))
+                .andExpect(header().doesNotExist("next-cursor"))
+                .andExpect(QueryBudget.atMost(3));
+    }
 
+    //This test case passes when you get all the answers to a question as one streamed array.
+    @Test
+    public void streamAllAnswersToQuestion() throws Exception {
+        final MvcResult stream = mvc.perform(MockMvcRequestBuilders.get("/answer/all/database_question_uuid?stream=true").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        stream.getAsyncResult();
+        final String body = stream.getResponse().getContentAsString();
+        assertEquals(Collections.singletonList("database_answer_uuid"), JsonPath.<List<String>>read(body, "$[*].id"));
+        assertEquals(Collections.singletonList("database_question_content"), JsonPath.<List<String>>read(body, "$[*].questionContent"));
+    }
+
+    /**
+     * @return uuid of a new question of the user of database_accesstoken1, deleted after the test
+     */
+    private String createQuestion() throws Exception {
+        final String response = mvc.perform(MockMvcRequestBuilders.post("/question/create").param("content", "answered question " + UUID.randomUUID()).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        final String questionId = JsonPath.read(response, "$.id");
+        createdQuestions.add(questionId);
+        return questionId;
+    }
+
+    /**
+     * @return uuid of the new answer
+     */
+    private String createAnswer(final String questionId, final String answer) throws Exception {
+        final String response = mvc.perform(MockMvcRequestBuilders.post("/question/" + questionId + "/answer/create").param("answer", answer).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        return JsonPath.read(response, "$.id");
+    }
 }
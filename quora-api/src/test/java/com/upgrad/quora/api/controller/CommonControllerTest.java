@@ -6,6 +6,7 @@ import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
@@ -15,6 +16,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
+@ActiveProfiles("test")
 @AutoConfigureMockMvc
 public class CommonControllerTest {
 
@@ -25,7 +27,8 @@ public class CommonControllerTest {
     @Test
     public void details() throws Exception {
         mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "database_accesstoken"))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(3));
     }
 
     //This test case passes when you try to get the details of the existing user but the JWT token entered does not exist in the database.
@@ -33,7 +36,8 @@ public class CommonControllerTest {
     public void detailsUsingNonExistingAccessToken() throws Exception {
         mvc.perform(MockMvcRequestBuilders.get("/userprofile/database_uuid1").header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(QueryBudget.atMost(1));
     }
 
     //This test case passes when you try to get the details of the user which does not exist in the database.
@@ -41,6 +45,7 @@ public class CommonControllerTest {
     public void detailsOfNonExistingUser() throws Exception {
         mvc.perform(MockMvcRequestBuilders.get("/userprofile/non_existing_user").header("authorization", "database_accesstoken"))
                 .andExpect(status().isNotFound())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"))
+                .andExpect(QueryBudget.atMost(3));
     }
 }
@@ -0,0 +1,30 @@
+package com.upgrad.quora.api.controller;
+
+import com.upgrad.quora.api.filter.QueryStatisticsFilter;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Result matchers asserting how many SQL statements a request may execute, read from the header written by
+ * QueryStatisticsFilter. Budgets are upper bounds because cached access tokens save the session lookup.
+ */
+final class QueryBudget {
+
+    private QueryBudget() {
+    }
+
+    /**
+     * @param maxStatements : maximum number of statements the request may execute
+     */
+    static ResultMatcher atMost(final int maxStatements) {
+        return result -> {
+            final String header = result.getResponse().getHeader(QueryStatisticsFilter.QUERY_COUNT_HEADER);
+            assertNotNull("Missing " + QueryStatisticsFilter.QUERY_COUNT_HEADER + " header", header);
+            final long statements = Long.parseLong(header);
+            assertTrue(result.getRequest().getMethod() + " " + result.getRequest().getRequestURI() + " executed "
+                    + statements + " SQL statements, the budget is " + maxStatements, statements <= maxStatements);
+        };
+    }
+}
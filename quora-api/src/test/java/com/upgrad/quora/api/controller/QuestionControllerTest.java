@@ -1,21 +1,37 @@
 package com.upgrad.quora.api.controller;
 
-
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.service.business.RelatedQuestionsJob;
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.hamcrest.Matchers.hasItem;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
+@ActiveProfiles("test")
 @AutoConfigureMockMvc
 
 public class QuestionControllerTest {
@@ -23,13 +39,33 @@ public class QuestionControllerTest {
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private RelatedQuestionsJob relatedQuestionsJob;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<String> createdQuestions = new ArrayList<>();
+
+    /**
+     * Delete the questions created by the test through the API, which also drops them from the caches and the
+     * in-memory indexes, so that quora_test.sql stays the only data other tests see.
+     */
+    @After
+    public void deleteCreatedQuestions() throws Exception {
+        for (String questionId : createdQuestions) {
+            mvc.perform(MockMvcRequestBuilders.delete("/question/delete/" + questionId).header("authorization", "database_accesstoken1"))
+                    .andExpect(status().isOk());
+        }
+    }
 
     //This test case passes when you try to create the question but the JWT token entered does not exist in the database.
     @Test
     public void createQuestionWithNonExistingAccessToken() throws Exception {
         mvc.perform(MockMvcRequestBuilders.post("/question/create?content=my_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(QueryBudget.atMost(1));
     }
 
     //This test case passes when you try to create the question but the user corresponding to the JWT token entered is signed out of the application.
@@ -37,14 +73,155 @@ public class QuestionControllerTest {
     public void createQuestionWithSignedOutUser() throws Exception {
         mvc.perform(MockMvcRequestBuilders.post("/question/create?content=my_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"))
+                .andExpect(QueryBudget.atMost(2));
+    }
+
+    //This test case passes when you try to create a question which has already been asked, written with a different case and punctuation.
+    @Test
+    public void createDuplicateQuestion() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.post("/question/create?content=Database question, content?").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isConflict())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-002"))
+                .andExpect(QueryBudget.atMost(2));
     }
 
     //This test case passes when you try to get the detail of all the questions and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
     @Test
     public void getAllQuestions() throws Exception {
         mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken1"))
-                .andExpect(status().isOk());
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(3));
+    }
+
+    //This test case passes when you get all the questions one page at a time and the next-cursor of the first page leads to the second question.
+    @Test
+    public void getAllQuestionsFollowingCursor() throws Exception {
+        createQuestion("paging question " + UUID.randomUUID());
+        final List<String> all = JsonPath.read(mvc.perform(MockMvcRequestBuilders.get("/question/all?limit=200").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$[*].id");
+
+        final MvcResult first = mvc.perform(MockMvcRequestBuilders.get("/question/all?limit=1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(all.get(0)))
+                .andExpect(header().exists("next-cursor"))
+                .andReturn();
+        mvc.perform(MockMvcRequestBuilders.get("/question/all?limit=1&cursor=" + first.getResponse().getHeader("next-cursor")).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(all.get(1)))
+                .andExpect(QueryBudget.atMost(3));
+    }
+
+    //This test case passes when you get all the questions as one streamed array and it holds the same questions as the listing.
+    @Test
+    public void streamAllQuestions() throws Exception {
+        createQuestion("streamed question " + UUID.randomUUID());
+        final List<String> all = JsonPath.read(mvc.perform(MockMvcRequestBuilders.get("/question/all?limit=200").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$[*].id");
+
+        final MvcResult stream = mvc.perform(MockMvcRequestBuilders.get("/question/all?stream=true").header("authorization", "database_accesstoken1"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        stream.getAsyncResult();
+        final List<String> streamed = JsonPath.read(stream.getResponse().getContentAsString(), "$[*].id");
+        assertEquals(all, streamed);
+        final List<String> contents = JsonPath.read(stream.getResponse().getContentAsString(), "$[?(@.id == 'database_question_uuid')].content");
+        assertEquals("database_question_content", contents.get(0));
+    }
+
+    //This test case passes when you try to search the questions and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void searchQuestions() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/search?q=database content").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].id").value(hasItem("database_question_uuid")))
+                .andExpect(QueryBudget.atMost(4));
+    }
+
+    //This test case passes when you try to search the questions but the JWT token entered does not exist in the database.
+    @Test
+    public void searchQuestionsWithNonExistingAccessToken() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/search?q=database").header("authorization", "non_existing_access_token"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(QueryBudget.atMost(1));
+    }
+
+    //This test case passes when you try to search the questions with a cursor which was not issued by the search.
+    @Test
+    public void searchQuestionsWithInvalidCursor() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/search?q=database&cursor=aWQ6Mg").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("PAG-001"))
+                .andExpect(QueryBudget.atMost(2));
+    }
+
+    //This test case passes when you try to get suggestions while typing a question and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void suggestQuestions() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/suggest?prefix=Database_Ques").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].id").value(hasItem("database_question_uuid")))
+                .andExpect(QueryBudget.atMost(2));
+    }
+
+    //This test case passes when you try to get suggestions while typing a question but the JWT token entered does not exist in the database.
+    @Test
+    public void suggestQuestionsWithNonExistingAccessToken() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/suggest?prefix=database").header("authorization", "non_existing_access_token"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(QueryBudget.atMost(1));
+    }
+
+    //This test case passes when you try to get the latest questions and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void getLatestQuestions() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/latest?limit=100").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].id").value(hasItem("database_question_uuid")))
+                .andExpect(QueryBudget.atMost(2));
+    }
+
+    //This test case passes when you try to get the latest questions but the JWT token entered does not exist in the database.
+    @Test
+    public void getLatestQuestionsWithNonExistingAccessToken() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/latest").header("authorization", "non_existing_access_token"))
+                .andExpect(status().isForbidden())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(QueryBudget.atMost(1));
+    }
+
+    //This test case passes when you try to get the questions related to a question and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in.
+    @Test
+    public void getRelatedQuestions() throws Exception {
+        final String tag = UUID.randomUUID().toString().substring(0, 8);
+        final String question = createQuestion(tag + "a " + tag + "b " + tag + "c " + tag + "d");
+        final String close = createQuestion(tag + "a " + tag + "b " + tag + "c " + tag + "e");
+        final String distant = createQuestion(tag + "a " + tag + "f " + tag + "g " + tag + "h");
+        relatedQuestionsJob.applyChanges();
+
+        final String response = mvc.perform(MockMvcRequestBuilders.get("/question/" + question + "/related").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(QueryBudget.atMost(3))
+                .andReturn().getResponse().getContentAsString();
+        final List<String> ids = JsonPath.read(response, "$[*].id");
+        final List<Double> scores = JsonPath.read(response, "$[*].similarity");
+        assertEquals(Arrays.asList(close, distant), ids);
+        assertTrue(scores.toString(), scores.get(0) > scores.get(1));
+    }
+
+    //This test case passes when you try to get the questions related to a question which does not exist in the database.
+    @Test
+    public void getRelatedQuestionsForNonExistingQuestion() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/non_existing_question_uuid/related").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isNotFound())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"))
+                .andExpect(QueryBudget.atMost(2));
     }
 
     //This test case passes when you try to get the detail of all the questions but the JWT token entered does not exist in the database.
@@ -52,7 +229,8 @@ public class QuestionControllerTest {
     public void getAllQuestionsWithNonExistingAccessToken() throws Exception {
         mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(QueryBudget.atMost(1));
     }
 
     //This test case passes when you try to get the detail of all the questions and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
@@ -60,7 +238,8 @@ public class QuestionControllerTest {
     public void getAllQuestionsWithSignedOutUser() throws Exception {
         mvc.perform(MockMvcRequestBuilders.get("/question/all").header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"))
+                .andExpect(QueryBudget.atMost(2));
     }
 
     //This test case passes when you try to edit the question but the JWT token entered does not exist in the database.
@@ -68,7 +247,8 @@ public class QuestionControllerTest {
     public void editQuestionWithNonExistingAccessToken() throws Exception {
         mvc.perform(MockMvcRequestBuilders.put("/question/edit/database_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(QueryBudget.atMost(1));
     }
 
     //This test case passes when you try to edit the question and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
@@ -76,7 +256,8 @@ public class QuestionControllerTest {
     public void editQuestionWithWithSignedOutUser() throws Exception {
         mvc.perform(MockMvcRequestBuilders.put("/question/edit/database_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"))
+                .andExpect(QueryBudget.atMost(2));
     }
 
     //This test case passes when you try to edit the question and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in but the corresponding user is not the owner of the question.
@@ -84,7 +265,8 @@ public class QuestionControllerTest {
     public void editQuestionWithoutOwnership() throws Exception {
         mvc.perform(MockMvcRequestBuilders.put("/question/edit/database_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"))
+                .andExpect(QueryBudget.atMost(4));
     }
 
     //This test case passes when you try to edit the question which does not exist in the database.
@@ -92,7 +274,8 @@ public class QuestionControllerTest {
     public void editNonExistingQuestion() throws Exception {
         mvc.perform(MockMvcRequestBuilders.put("/question/edit/non_exisitng_question_uuid?content=edited_question").contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
                 .andExpect(status().isNotFound())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"))
+                .andExpect(QueryBudget.atMost(3));
     }
 
     //This test case passes when you try to delete the question but the JWT token entered does not exist in the database.
@@ -100,7 +283,8 @@ public class QuestionControllerTest {
     public void deleteQuestionWithNonExistingAccessToken() throws Exception {
         mvc.perform(MockMvcRequestBuilders.delete("/question/delete/database_question_uuid").header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(QueryBudget.atMost(1));
     }
 
     //This test case passes when you try to delete the question and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
@@ -108,7 +292,8 @@ public class QuestionControllerTest {
     public void deleteQuestionWithSignedOutUser() throws Exception {
         mvc.perform(MockMvcRequestBuilders.delete("/question/delete/database_question_uuid").header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"))
+                .andExpect(QueryBudget.atMost(2));
     }
 
     //This test case passes when you try to delete the question and the JWT token entered exists in the database and the user corresponding to that JWT token is signed in but the corresponding user is not the owner of the question or he is not the admin.
@@ -116,7 +301,8 @@ public class QuestionControllerTest {
     public void deleteQuestionWithoutOwnership() throws Exception {
         mvc.perform(MockMvcRequestBuilders.delete("/question/delete/database_question_uuid").header("authorization", "database_accesstoken2"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-003"))
+                .andExpect(QueryBudget.atMost(4));
     }
 
 
@@ -125,7 +311,8 @@ public class QuestionControllerTest {
     public void deleteNoneExistingQuestion() throws Exception {
         mvc.perform(MockMvcRequestBuilders.delete("/question/delete/non_existing_question_uuid").header("authorization", "database_accesstoken1"))
                 .andExpect(status().isNotFound())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("QUES-001"))
+                .andExpect(QueryBudget.atMost(3));
     }
 
     //This test case passes when you try to get all the questions posted by a specific user but the JWT token entered does not exist in the database.
@@ -133,7 +320,8 @@ public class QuestionControllerTest {
     public void getAllQuestionsByUserWithNonExistingAccessToken() throws Exception {
         mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "non_existing_access_token"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-001"))
+                .andExpect(QueryBudget.atMost(1));
     }
 
     //This test case passes when you try to get all the questions posted by a specific user and the JWT token entered exists in the database but the user corresponding to that JWT token is signed out.
@@ -141,7 +329,8 @@ public class QuestionControllerTest {
     public void getAllQuestionsByUserWithSignedOutUser() throws Exception {
         mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken3"))
                 .andExpect(status().isForbidden())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATHR-002"))
+                .andExpect(QueryBudget.atMost(2));
     }
 
     //This test case passes when you try to get all the questions posted by a specific user which does not exist in the database.
@@ -149,8 +338,95 @@ public class QuestionControllerTest {
     public void getAllQuestionsForNonExistingUser() throws Exception {
         mvc.perform(MockMvcRequestBuilders.get("/question/all/non_existing_user_uuid").header("authorization", "database_accesstoken1"))
                 .andExpect(status().isNotFound())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("USR-001"))
+                .andExpect(QueryBudget.atMost(3));
     }
 
+    //This test case passes when you try to get all the questions posted by a specific user and each question carries the number of its answers and the time of the latest one.
+    @Test
+    public void getAllQuestionsByUserWithAnswerStats() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == 'database_question_uuid')].answer_count").value(hasItem(1)))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[?(@.id == 'database_question_uuid')].last_answer_at").isNotEmpty())
+                .andExpect(QueryBudget.atMost(3));
+    }
 
+    //This test case passes when you get all the questions posted by a specific user twice and the second time the questions are read from the cache.
+    @Test
+    public void getAllQuestionsByUserFromCache() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk());
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$[*].id").value(hasItem("database_question_uuid")))
+                .andExpect(QueryBudget.atMost(1));
+    }
+
+    //This test case passes when you get the questions posted by a specific user without a cursor or a limit and all of them come in one response.
+    @Test
+    public void getAllQuestionsByUserWithoutPaging() throws Exception {
+        // More questions than the default page size of 50
+        while (countQuestionsOfUser("database_uuid1") <= 50) {
+            createQuestion("unpaged question " + UUID.randomUUID());
+        }
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(countQuestionsOfUser("database_uuid1")))
+                .andExpect(header().doesNotExist("next-cursor"));
+    }
+
+    //This test case passes when you get the questions posted by a specific user one page at a time by following the next-cursor header.
+    @Test
+    public void getAllQuestionsByUserFollowingCursor() throws Exception {
+        createQuestion("first paged question " + UUID.randomUUID());
+        createQuestion("second paged question " + UUID.randomUUID());
+        final List<String> all = JsonPath.read(mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(), "$[*].id");
+
+        final MvcResult first = mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1?limit=1").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(all.get(0)))
+                .andExpect(header().exists("next-cursor"))
+                .andReturn();
+        final MvcResult second = mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1?limit=1&cursor=" + first.getResponse().getHeader("next-cursor")).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[0].id").value(all.get(1)))
+                .andExpect(header().exists("next-cursor"))
+                .andReturn();
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1?limit=200&cursor=" + second.getResponse().getHeader("next-cursor")).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.length()").value(all.size() - 2))
+                .andExpect(MockMvcResultMatchers.jsonPath("$[-1].id").value(all.get(all.size() - 1)))
+                .andExpect(header().doesNotExist("next-cursor"));
+    }
+
+    //This test case passes when you try to get a page of the questions posted by a specific user with a cursor which was not issued by the listing.
+    @Test
+    public void getAllQuestionsByUserWithInvalidCursor() throws Exception {
+        mvc.perform(MockMvcRequestBuilders.get("/question/all/database_uuid1?cursor=garbage!").header("authorization", "database_accesstoken1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("PAG-001"))
+                .andExpect(QueryBudget.atMost(2));
+    }
+
+    private int countQuestionsOfUser(final String userUuid) {
+        return jdbcTemplate.queryForObject("select count(*) from question q join users u on u.id = q.user_id where u.uuid = ?",
+                Integer.class, userUuid);
+    }
+
+    /**
+     * @return uuid of the question created by the user of database_accesstoken1, deleted after the test
+     */
+    private String createQuestion(final String content) throws Exception {
+        final String response = mvc.perform(MockMvcRequestBuilders.post("/question/create").param("content", content).contentType(MediaType.APPLICATION_JSON_UTF8_VALUE).header("authorization", "database_accesstoken1"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        final String questionId = JsonPath.read(response, "$.id");
+        createdQuestions.add(questionId);
+        return questionId;
+    }
 }
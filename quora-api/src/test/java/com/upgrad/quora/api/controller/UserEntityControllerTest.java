@@ -1,33 +1,81 @@
 
 package com.upgrad.quora.api.controller;
 
+import com.jayway.jsonpath.JsonPath;
+import com.upgrad.quora.service.business.AuthDatabaseExecutor;
+import com.upgrad.quora.service.business.PasswordHashingExecutor;
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
+import org.junit.After;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import javax.xml.bind.DatatypeConverter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
 @SpringBootTest
+@ActiveProfiles("test")
 @AutoConfigureMockMvc
 public class UserEntityControllerTest {
 
     @Autowired
     private MockMvc mvc;
 
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Autowired
+    private AuthDatabaseExecutor authDatabaseExecutor;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final List<String> createdUsers = new ArrayList<>();
+
+    /**
+     * Delete the users created by the test through the admin API, their sessions with them, so that
+     * quora_test.sql stays the only data other tests see.
+     */
+    @After
+    public void deleteCreatedUsers() throws Exception {
+        for (String userId : createdUsers) {
+            mvc.perform(MockMvcRequestBuilders.delete("/admin/user/" + userId).header("authorization", "database_accesstoken"))
+                    .andExpect(status().isOk());
+        }
+    }
+
     //This test case passes when you signup with a username that already exists in the database.
     @Test
     public void signupWithRepeatedUserName() throws Exception {
         mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=database_username&emailAddress=a&password=a&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isConflict())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-001"))
+                .andExpect(QueryBudget.atMost(1));
     }
 
     //This test case passes when you signup with an email that already exists in the database.
@@ -35,16 +83,199 @@ public class UserEntityControllerTest {
     public void signupWithRepeatedEmail() throws Exception {
         mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=non_existing_username&emailAddress=database_email&password=a&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
                 .andExpect(status().isConflict())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-002"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-002"))
+                .andExpect(QueryBudget.atMost(1));
     }
 
+    //This test case passes when you signup with a username taken on another instance, which the insert rejects.
+    @Test
+    public void signupWithUserNameTakenBehindIdentityFilter() throws Exception {
+        final String taken = "taken_" + UUID.randomUUID().toString().substring(0, 8);
+        insertUserBehindIdentityFilter(taken);
+        final MvcResult signup = mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + taken + "&emailAddress=other_" + taken + "&password=a&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(signup))
+                .andExpect(status().isConflict())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-001"));
+    }
+
+    //This test case passes when you signup with an email taken on another instance, which the insert rejects.
+    @Test
+    public void signupWithEmailTakenBehindIdentityFilter() throws Exception {
+        final String taken = "taken_" + UUID.randomUUID().toString().substring(0, 8);
+        insertUserBehindIdentityFilter(taken);
+        final MvcResult signup = mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=other_" + taken + "&emailAddress=" + taken + "&password=a&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(signup))
+                .andExpect(status().isConflict())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-002"));
+    }
 
     //This test case passes when you try to signout but the JWT token entered does not exist in the database.
     @Test
     public void signoutWithNonExistingAccessToken() throws Exception {
         mvc.perform(MockMvcRequestBuilders.post("/user/signout").header("authorization", "non_existing_access_token"))
                 .andExpect(status().isUnauthorized())
-                .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-001"));
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("SGR-001"))
+                .andExpect(QueryBudget.atMost(1));
     }
-}
 
+    //This test case passes when you signin with a wrong password, which is only found out on a hashing thread.
+    @Test
+    public void signinWithWrongPassword() throws Exception {
+        final String userName = "signin_" + UUID.randomUUID().toString().substring(0, 8);
+        signup(userName, "right_password");
+
+        final MvcResult signin = mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", basic(userName, "wrong_password")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(signin))
+                .andExpect(status().isUnauthorized())
+                .andExpect(MockMvcResultMatchers.jsonPath("code").value("ATH-002"));
+    }
+
+    //This test case passes when you signin with a password hashed by the legacy scheme, which is then upgraded.
+    @Test
+    public void signinRehashesLegacyPassword() throws Exception {
+        final String userName = "legacy_" + UUID.randomUUID().toString().substring(0, 8);
+        signup(userName, "legacy_password");
+        final byte[] salt = new byte[32];
+        final byte[] legacyHash = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA512")
+                .generateSecret(new PBEKeySpec("legacy_password".toCharArray(), salt, 1000, 64)).getEncoded();
+        jdbcTemplate.update("update users set salt = ?, password = ? where username = ?",
+                Base64.getEncoder().encodeToString(salt), DatatypeConverter.printHexBinary(legacyHash), userName);
+
+        final MvcResult signin = mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", basic(userName, "legacy_password")))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(signin))
+                .andExpect(status().isOk());
+        final String password = jdbcTemplate.queryForObject(
+                "select password from users where username = ?", String.class, userName);
+        assertTrue(password, password.startsWith("v1$"));
+    }
+
+    //This test case passes when you signin while every hashing thread is busy and the hashing queue is full.
+    @Test
+    public void signinWithFullHashingQueue() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            fillHashingQueue(release);
+            mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", basic("database_username", "database_password")))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"))
+                    .andExpect(MockMvcResultMatchers.jsonPath("code").value("SRV-001"))
+                    .andExpect(MockMvcResultMatchers.jsonPath("message").value("Too many sign-in requests, try again later"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    //This test case passes when you signup while every hashing thread is busy and the hashing queue is full.
+    @Test
+    public void signupWithFullHashingQueue() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            fillHashingQueue(release);
+            mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=non_existing_username&emailAddress=non_existing_email&password=a&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(header().string("Retry-After", "1"))
+                    .andExpect(MockMvcResultMatchers.jsonPath("code").value("SRV-001"))
+                    .andExpect(MockMvcResultMatchers.jsonPath("message").value("Too many sign-up requests, try again later"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    //This test case passes when you signin while every thread creating sessions is busy and their queue is full, after the password was verified.
+    @Test
+    public void signinWithFullDatabaseWorkQueue() throws Exception {
+        final String userName = "queued_" + UUID.randomUUID().toString().substring(0, 8);
+        signup(userName, "queued_password");
+        final CountDownLatch release = new CountDownLatch(1);
+        try {
+            executeUntilRefused(release);
+            Thread.sleep(100);
+            executeUntilRefused(release);
+            final MvcResult signin = mvc.perform(MockMvcRequestBuilders.post("/user/signin").header("authorization", basic(userName, "queued_password")))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mvc.perform(asyncDispatch(signin))
+                    .andExpect(status().isServiceUnavailable())
+                    .andExpect(MockMvcResultMatchers.jsonPath("code").value("SRV-001"))
+                    .andExpect(MockMvcResultMatchers.jsonPath("message").value("Too many requests waiting for the database, try again later"));
+        } finally {
+            release.countDown();
+        }
+    }
+
+    private void executeUntilRefused(final CountDownLatch release) {
+        while (true) {
+            try {
+                authDatabaseExecutor.execute(() -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            } catch (CompletionException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Submits blocking tasks until one is refused, twice: idle hashing threads may still take tasks from the queue
+     * after the first refusal.
+     */
+    private void fillHashingQueue(final CountDownLatch release) throws InterruptedException {
+        submitUntilRefused(release);
+        Thread.sleep(100);
+        submitUntilRefused(release);
+    }
+
+    private void submitUntilRefused(final CountDownLatch release) {
+        while (true) {
+            try {
+                passwordHashingExecutor.submit("test", () -> {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                });
+            } catch (ServiceUnavailableException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Inserts a user with the name as username and email without going through this instance, so that the identity
+     * filter does not know them and the sign-up goes straight to the insert.
+     */
+    private void insertUserBehindIdentityFilter(final String name) {
+        final String userId = UUID.randomUUID().toString();
+        jdbcTemplate.update("insert into users(uuid, firstname, lastname, username, email, password, salt, country, aboutme, dob, role, contactnumber)"
+                + " values (?, 'a', 'a', ?, ?, 'a', 'a', 'a', 'a', 'a', 'nonadmin', 'a')", userId, name, name);
+        createdUsers.add(userId);
+    }
+
+    private void signup(final String userName, final String password) throws Exception {
+        final MvcResult signup = mvc.perform(MockMvcRequestBuilders.post("/user/signup?firstName=a&lastName=a&userName=" + userName + "&emailAddress=" + userName + "&password=" + password + "&country=a&aboutMe=a&dob=a&contactNumber=a").contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        final String response = mvc.perform(asyncDispatch(signup))
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        createdUsers.add(JsonPath.read(response, "$.id"));
+    }
+
+    private static String basic(final String userName, final String password) {
+        return "Basic " + Base64.getEncoder().encodeToString((userName + ":" + password).getBytes(StandardCharsets.UTF_8));
+    }
+}
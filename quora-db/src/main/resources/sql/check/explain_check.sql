@@ -0,0 +1,108 @@
+--Checks that the lookups of the application are served by indexes. Each table is copied with its indexes
+--into a temporary table of the same name, which shadows it for the rest of the session, and filled with a
+--generated dataset large enough for the planner to prefer an index over a sequential scan. The check fails
+--with the plan of the first lookup that reads a whole table. Nothing is written to the application tables.
+--Statements are separated by a line holding a single slash.
+CREATE TEMP TABLE USERS (LIKE public.USERS INCLUDING ALL)
+/
+CREATE TEMP TABLE USER_AUTH (LIKE public.USER_AUTH INCLUDING ALL)
+/
+CREATE TEMP TABLE QUESTION (LIKE public.QUESTION INCLUDING ALL)
+/
+CREATE TEMP TABLE ANSWER (LIKE public.ANSWER INCLUDING ALL)
+/
+CREATE TEMP TABLE QUESTION_RELATED (LIKE public.QUESTION_RELATED INCLUDING ALL)
+/
+INSERT INTO USERS(id, uuid, firstname, lastname, username, email, password, salt, role)
+    SELECT i, 'user-' || i, 'first', 'last', 'user' || i, 'user' || i || '@example.com', 'password', 'salt', 'nonadmin'
+    FROM generate_series(1, 20000) i
+/
+--One session in a hundred has expired and one in two hundred was signed out
+INSERT INTO USER_AUTH(id, uuid, user_id, access_token, access_token_digest, expires_at, login_at, logout_at)
+    SELECT i, 'session-' || i, 1 + i % 20000, 'token-' || i, DIGEST('token-' || i, 'sha256'),
+        CASE WHEN i % 100 = 0 THEN now() - INTERVAL '30 days' ELSE now() + INTERVAL '8 hours' END,
+        now() - INTERVAL '1 hour',
+        CASE WHEN i % 200 = 1 THEN now() - INTERVAL '30 days' END
+    FROM generate_series(1, 50000) i
+/
+--The temporary table has no trigger, so the search vector is filled in here
+INSERT INTO QUESTION(id, uuid, content, date, user_id, content_tsv)
+    SELECT i, 'question-' || i, 'content of question ' || i, now(), 1 + i % 20000,
+        to_tsvector('pg_catalog.english', 'content of question ' || i)
+    FROM generate_series(1, 100000) i
+/
+INSERT INTO ANSWER(id, uuid, ans, date, user_id, question_id)
+    SELECT i, 'answer-' || i, 'answer ' || i, now(), 1 + i % 20000, 1 + i % 100000
+    FROM generate_series(1, 200000) i
+/
+ANALYZE USERS
+/
+ANALYZE USER_AUTH
+/
+ANALYZE QUESTION
+/
+INSERT INTO QUESTION_RELATED(question_id, related_ids, scores)
+    SELECT i, ARRAY[1 + (i + 1) % 100000, 1 + (i + 2) % 100000, 1 + (i + 3) % 100000], ARRAY[0.5, 0.4, 0.3]::REAL[]
+    FROM generate_series(1, 100000) i
+/
+ANALYZE ANSWER
+/
+ANALYZE QUESTION_RELATED
+/
+CREATE FUNCTION pg_temp.assert_indexed(lookup TEXT, query TEXT) RETURNS VOID AS $$
+DECLARE
+    line TEXT;
+    plan TEXT := '';
+BEGIN
+    FOR line IN EXECUTE 'EXPLAIN ' || query LOOP
+        plan := plan || E'\n' || line;
+    END LOOP;
+    IF plan LIKE '%Seq Scan%' THEN
+        RAISE EXCEPTION 'No index serves the % lookup:%', lookup, plan;
+    END IF;
+END;
+$$ LANGUAGE plpgsql
+/
+--UserRepository
+SELECT pg_temp.assert_indexed('user by uuid', $$SELECT * FROM USERS WHERE uuid = 'user-100'$$)
+/
+SELECT pg_temp.assert_indexed('user by username', $$SELECT * FROM USERS WHERE username = 'user100'$$)
+/
+SELECT pg_temp.assert_indexed('user by email', $$SELECT * FROM USERS WHERE email = 'user100@example.com'$$)
+/
+--UserAuthRepository
+SELECT pg_temp.assert_indexed('session by access token digest',
+    $$SELECT * FROM USER_AUTH WHERE access_token_digest = DIGEST('token-100', 'sha256')$$)
+/
+SELECT pg_temp.assert_indexed('sessions of a user', $$SELECT * FROM USER_AUTH WHERE user_id = 100$$)
+/
+SELECT pg_temp.assert_indexed('ended sessions',
+    $$SELECT id FROM USER_AUTH WHERE expires_at < now() - INTERVAL '1 day' OR logout_at < now() - INTERVAL '1 day' LIMIT 500$$)
+/
+--QuestionRepository
+SELECT pg_temp.assert_indexed('question by uuid', $$SELECT * FROM QUESTION WHERE uuid = 'question-100'$$)
+/
+SELECT pg_temp.assert_indexed('questions of a user', $$SELECT id, uuid, content FROM QUESTION WHERE user_id = 100 ORDER BY id$$)
+/
+SELECT pg_temp.assert_indexed('page of questions', $$SELECT id, uuid, content FROM QUESTION WHERE id > 5000 ORDER BY id LIMIT 51$$)
+/
+SELECT pg_temp.assert_indexed('latest questions', $$SELECT id, uuid, content, date FROM QUESTION ORDER BY id DESC LIMIT 500$$)
+/
+SELECT pg_temp.assert_indexed('question search',
+    $$SELECT q.id FROM QUESTION q, plainto_tsquery('pg_catalog.english', '4242') terms
+      WHERE q.content_tsv @@ terms ORDER BY ts_rank(q.content_tsv, terms) DESC, q.id DESC LIMIT 51$$)
+/
+SELECT pg_temp.assert_indexed('related questions',
+    $$SELECT q.uuid, q.content, r.score FROM QUESTION_RELATED qr
+      CROSS JOIN LATERAL unnest(qr.related_ids, qr.scores) WITH ORDINALITY AS r(id, score, rank)
+      JOIN QUESTION q ON q.id = r.id WHERE qr.question_id = 100 ORDER BY r.rank$$)
+/
+--AnswerRepository
+SELECT pg_temp.assert_indexed('answer by uuid', $$SELECT * FROM ANSWER WHERE uuid = 'answer-100'$$)
+/
+SELECT pg_temp.assert_indexed('page of answers to a question',
+    $$SELECT a.id, a.uuid, a.ans, q.content FROM QUESTION q LEFT JOIN ANSWER a ON a.question_id = q.id AND a.id > 0
+      WHERE q.uuid = 'question-100' ORDER BY a.id LIMIT 51$$)
+/
+SELECT pg_temp.assert_indexed('answers of a user', $$SELECT * FROM ANSWER WHERE user_id = 100$$)
+/
@@ -0,0 +1,86 @@
+--Benchmarks the listings before and after they were changed to read column projections. Before, each listing
+--loaded whole entities and, through the eager associations, the whole USERS row of each author, password and
+--salt included; after, it reads the few columns it returns. The "before" statements join the author rows in,
+--which is what the entity queries with fetch joins ran; the entity queries without them also ran one select per
+--distinct author, which is not counted here. USERS, QUESTION and ANSWER are copied with their indexes into
+--temporary tables of the same name, which shadow them for the rest of the session, so nothing is written to the
+--application tables. The plans are printed with their execution times, and the size of the rows each statement
+--returns to the application is printed after them. Statements are separated by a line holding a single slash.
+CREATE TEMP TABLE USERS (LIKE public.USERS INCLUDING ALL)
+/
+CREATE TEMP TABLE QUESTION (LIKE public.QUESTION INCLUDING ALL)
+/
+CREATE TEMP TABLE ANSWER (LIKE public.ANSWER INCLUDING ALL)
+/
+--Passwords and salts as long as the ones the application stores
+INSERT INTO USERS(id, uuid, firstname, lastname, username, email, password, salt, country, aboutme, dob, role, contactnumber)
+    SELECT i, md5('user' || i), 'first', 'last', 'user' || i, 'user' || i || '@example.com',
+        'v1$210000$512$' || repeat(md5('password' || i), 4), encode(decode(md5('salt' || i) || md5('pepper' || i), 'hex'), 'base64'),
+        'country', 'about me', '01-01-1990', 'nonadmin', '0123456789'
+    FROM generate_series(1, 100000) i
+/
+INSERT INTO QUESTION(id, uuid, content, date, user_id)
+    SELECT i, md5('question' || i), 'How does the content of question ' || i || ' compare with the questions before it?',
+        now(), 1 + i % 100000
+    FROM generate_series(1, 1000000) i
+/
+--One answer to most questions, and 10000 answers to question 1
+INSERT INTO ANSWER(id, uuid, ans, date, user_id, question_id)
+    SELECT i, md5('answer' || i), 'An answer of about the length answers usually have, number ' || i, now(),
+        1 + i % 100000, CASE WHEN i <= 10000 THEN 1 ELSE i END
+    FROM generate_series(1, 1000000) i
+/
+ANALYZE USERS
+/
+ANALYZE QUESTION
+/
+ANALYZE ANSWER
+/
+--Page of /question/all, before
+EXPLAIN (ANALYZE, BUFFERS) SELECT q.id, q.uuid, q.content, q.date, q.user_id, u.*
+    FROM QUESTION q JOIN USERS u ON u.id = q.user_id WHERE q.id > 500000 ORDER BY q.id LIMIT 51
+/
+--Page of /question/all, after
+EXPLAIN (ANALYZE, BUFFERS) SELECT q.id, q.uuid, q.content FROM QUESTION q WHERE q.id > 500000 ORDER BY q.id LIMIT 51
+/
+--Streamed /question/all, before
+EXPLAIN (ANALYZE, BUFFERS) SELECT q.id, q.uuid, q.content, q.date, q.user_id, u.*
+    FROM QUESTION q JOIN USERS u ON u.id = q.user_id ORDER BY q.id
+/
+--Streamed /question/all, after
+EXPLAIN (ANALYZE, BUFFERS) SELECT q.id, q.uuid, q.content FROM QUESTION q ORDER BY q.id
+/
+SELECT 'stream before' AS listing, count(*) AS rows, pg_size_pretty(sum(pg_column_size(t))) AS returned
+    FROM (SELECT q.id, q.uuid, q.content, q.date, q.user_id, u.* FROM QUESTION q JOIN USERS u ON u.id = q.user_id) t
+    UNION ALL
+    SELECT 'stream after', count(*), pg_size_pretty(sum(pg_column_size(t)))
+    FROM (SELECT q.id, q.uuid, q.content FROM QUESTION q) t
+/
+--Answers of the question with 10000 answers, before: the answer, its author, the question and its author
+EXPLAIN (ANALYZE, BUFFERS) SELECT a.id, a.uuid, a.ans, a.date, a.user_id, a.question_id, ua.*,
+        q.id, q.uuid, q.content, q.date, q.user_id, uq.*
+    FROM ANSWER a JOIN USERS ua ON ua.id = a.user_id JOIN QUESTION q ON q.id = a.question_id
+    JOIN USERS uq ON uq.id = q.user_id
+    WHERE q.id = 1 ORDER BY a.id
+/
+--Answers of the question with 10000 answers, after
+EXPLAIN (ANALYZE, BUFFERS) SELECT a.id, a.uuid, a.ans, q.content
+    FROM ANSWER a JOIN QUESTION q ON q.id = a.question_id WHERE q.id = 1 ORDER BY a.id
+/
+SELECT 'answers before' AS listing, count(*) AS rows, pg_size_pretty(sum(pg_column_size(t))) AS returned
+    FROM (SELECT a.id, a.uuid, a.ans, a.date, a.user_id, a.question_id, ua.*,
+                 q.id AS q_id, q.uuid AS q_uuid, q.content, q.date AS q_date, q.user_id AS q_user_id, uq.*
+          FROM ANSWER a JOIN USERS ua ON ua.id = a.user_id JOIN QUESTION q ON q.id = a.question_id
+          JOIN USERS uq ON uq.id = q.user_id WHERE q.id = 1) t
+    UNION ALL
+    SELECT 'answers after', count(*), pg_size_pretty(sum(pg_column_size(t)))
+    FROM (SELECT a.id, a.uuid, a.ans, q.content FROM ANSWER a JOIN QUESTION q ON q.id = a.question_id
+          WHERE q.id = 1) t
+/
+--Questions of a user, before
+EXPLAIN (ANALYZE, BUFFERS) SELECT q.id, q.uuid, q.content, q.date, q.user_id, u.*
+    FROM QUESTION q JOIN USERS u ON u.id = q.user_id WHERE q.user_id = 500 ORDER BY q.id
+/
+--Questions of a user, after
+EXPLAIN (ANALYZE, BUFFERS) SELECT q.id, q.uuid, q.content FROM QUESTION q WHERE q.user_id = 500 ORDER BY q.id
+/
@@ -0,0 +1,37 @@
+--Benchmarks the question search against a generated corpus of one million questions. QUESTION is copied
+--with its indexes into a temporary table of the same name, which shadows it for the rest of the session, so
+--nothing is written to the application tables. Each question has eight words drawn from a vocabulary of
+--5000 with a log-uniform distribution, so that a few words are very common and most are rare. The plans are
+--printed with their execution times. Statements are separated by a line holding a single slash.
+CREATE TEMP TABLE QUESTION (LIKE public.QUESTION INCLUDING ALL)
+/
+INSERT INTO QUESTION(id, uuid, content, date, user_id)
+    SELECT i, 'question-' || i,
+        (SELECT string_agg('w' || floor(exp(random() * ln(5000)))::INT, ' ') FROM generate_series(1, 8) WHERE i > 0),
+        now(), 1
+    FROM generate_series(1, 1000000) i
+/
+--The temporary table has no trigger, so the search vector is filled in here
+UPDATE QUESTION SET content_tsv = to_tsvector('pg_catalog.english', content)
+/
+ANALYZE QUESTION
+/
+--Rare word: a few hundred matches
+EXPLAIN (ANALYZE, BUFFERS) SELECT q.id FROM QUESTION q, plainto_tsquery('pg_catalog.english', 'w4000') terms
+    WHERE q.content_tsv @@ terms ORDER BY ts_rank(q.content_tsv, terms) DESC, q.id DESC LIMIT 51
+/
+--Two words, each matching about one question in ten, both rarely together
+EXPLAIN (ANALYZE, BUFFERS) SELECT q.id FROM QUESTION q, plainto_tsquery('pg_catalog.english', 'w20 w30') terms
+    WHERE q.content_tsv @@ terms ORDER BY ts_rank(q.content_tsv, terms) DESC, q.id DESC LIMIT 51
+/
+--Common word: more than one question in four matches, every match is ranked
+EXPLAIN (ANALYZE, BUFFERS) SELECT q.id FROM QUESTION q, plainto_tsquery('pg_catalog.english', 'w1') terms
+    WHERE q.content_tsv @@ terms ORDER BY ts_rank(q.content_tsv, terms) DESC, q.id DESC LIMIT 51
+/
+--Deepest page served
+EXPLAIN (ANALYZE, BUFFERS) SELECT q.id FROM QUESTION q, plainto_tsquery('pg_catalog.english', 'w1') terms
+    WHERE q.content_tsv @@ terms ORDER BY ts_rank(q.content_tsv, terms) DESC, q.id DESC LIMIT 51 OFFSET 950
+/
+--Substring match the search replaces
+EXPLAIN (ANALYZE, BUFFERS) SELECT q.id FROM QUESTION q WHERE q.content LIKE '%w4000 %' ORDER BY q.id DESC LIMIT 51
+/
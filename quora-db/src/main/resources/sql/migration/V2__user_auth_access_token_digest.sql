@@ -0,0 +1,11 @@
+--Adds the SHA-256 digest of the access token to USER_AUTH so sessions are looked up by a fixed-width, indexed key
+CREATE EXTENSION IF NOT EXISTS pgcrypto;
+
+ALTER TABLE USER_AUTH ADD COLUMN IF NOT EXISTS ACCESS_TOKEN_DIGEST BYTEA;
+
+--Backfill the existing sessions
+UPDATE USER_AUTH SET ACCESS_TOKEN_DIGEST = DIGEST(ACCESS_TOKEN, 'sha256') WHERE ACCESS_TOKEN_DIGEST IS NULL;
+
+ALTER TABLE USER_AUTH ALTER COLUMN ACCESS_TOKEN_DIGEST SET NOT NULL;
+
+CREATE UNIQUE INDEX IF NOT EXISTS UX_USER_AUTH_ACCESS_TOKEN_DIGEST ON USER_AUTH(ACCESS_TOKEN_DIGEST);
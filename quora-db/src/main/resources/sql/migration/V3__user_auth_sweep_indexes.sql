@@ -0,0 +1,3 @@
+--Indexes used by the session sweeper to find expired and signed out sessions
+CREATE INDEX IF NOT EXISTS IX_USER_AUTH_EXPIRES_AT ON USER_AUTH(EXPIRES_AT);
+CREATE INDEX IF NOT EXISTS IX_USER_AUTH_LOGOUT_AT ON USER_AUTH(LOGOUT_AT) WHERE LOGOUT_AT IS NOT NULL;
@@ -0,0 +1,3 @@
+--Indexes used to look up a question by uuid and list its answers in the order they were posted
+CREATE INDEX IF NOT EXISTS IX_QUESTION_UUID ON QUESTION(uuid);
+CREATE INDEX IF NOT EXISTS IX_ANSWER_QUESTION_ID ON ANSWER(question_id, id);
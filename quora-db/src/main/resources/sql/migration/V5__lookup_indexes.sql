@@ -0,0 +1,12 @@
+--Rows are looked up by uuid in every table; the uuids are unique, so the indexes enforce it as well
+CREATE UNIQUE INDEX IF NOT EXISTS UX_USERS_UUID ON USERS(uuid);
+CREATE UNIQUE INDEX IF NOT EXISTS UX_USER_AUTH_UUID ON USER_AUTH(uuid);
+CREATE UNIQUE INDEX IF NOT EXISTS UX_ANSWER_UUID ON ANSWER(uuid);
+CREATE UNIQUE INDEX IF NOT EXISTS UX_QUESTION_UUID ON QUESTION(uuid);
+DROP INDEX IF EXISTS IX_QUESTION_UUID;
+
+--Foreign keys are indexed for the listings by user and for the cascading deletes of users and questions;
+--ANSWER(question_id, id) already covers ANSWER.question_id
+CREATE INDEX IF NOT EXISTS IX_QUESTION_USER_ID ON QUESTION(user_id, id);
+CREATE INDEX IF NOT EXISTS IX_ANSWER_USER_ID ON ANSWER(user_id);
+CREATE INDEX IF NOT EXISTS IX_USER_AUTH_USER_ID ON USER_AUTH(user_id);
@@ -0,0 +1,8 @@
+--Number of answers and time of the latest answer of each question, kept up to date by the application
+--when answers are posted or deleted so that question listings do not aggregate ANSWER
+ALTER TABLE QUESTION ADD COLUMN IF NOT EXISTS answer_count INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE QUESTION ADD COLUMN IF NOT EXISTS last_answer_at TIMESTAMP;
+
+UPDATE QUESTION q SET answer_count = s.answer_count, last_answer_at = s.last_answer_at
+FROM (SELECT question_id, COUNT(*) AS answer_count, MAX(date) AS last_answer_at FROM ANSWER GROUP BY question_id) s
+WHERE q.id = s.question_id;
@@ -0,0 +1,9 @@
+--Full-text search over the question content: the lexemes of the content are kept in CONTENT_TSV by a
+--trigger and indexed with GIN, so a search reads the matching rows only
+ALTER TABLE QUESTION ADD COLUMN IF NOT EXISTS content_tsv TSVECTOR;
+UPDATE QUESTION SET content_tsv = to_tsvector('pg_catalog.english', content);
+
+CREATE TRIGGER TR_QUESTION_CONTENT_TSV BEFORE INSERT OR UPDATE OF content ON QUESTION
+    FOR EACH ROW EXECUTE PROCEDURE tsvector_update_trigger(content_tsv, 'pg_catalog.english', content);
+
+CREATE INDEX IF NOT EXISTS IX_QUESTION_CONTENT_TSV ON QUESTION USING GIN (content_tsv);
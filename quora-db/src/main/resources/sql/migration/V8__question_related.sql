@@ -0,0 +1,12 @@
+--Related questions of each question, precomputed from the words the questions have in common. A question
+--has one row holding the ids of its related questions, most related first, with their scores; the ids of
+--questions deleted since the row was written are skipped when it is read
+CREATE TABLE IF NOT EXISTS QUESTION_RELATED(
+	QUESTION_ID INTEGER NOT NULL,
+	RELATED_IDS INTEGER[] NOT NULL,
+	SCORES REAL[] NOT NULL,
+	COMPUTED_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+	PRIMARY KEY (QUESTION_ID)
+);
+
+ALTER TABLE QUESTION_RELATED ADD CONSTRAINT FK_QUESTION_RELATED_QUESTION_ID FOREIGN KEY(QUESTION_ID) REFERENCES QUESTION(ID) ON DELETE CASCADE;
@@ -1,15 +1,33 @@
 package com.upgrad.quora.service;
 
 
+import com.upgrad.quora.service.business.JwtTokenProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.time.Duration;
 
 /**
  * Enabling the component scan and entity scan of classes in the below mentioned "com.upgrad.quora.service" and "com.upgrad.quora.service.entity" packages respectively.
+ * Scheduling is enabled for the housekeeping jobs of the service layer.
  */
 @Configuration
 @ComponentScan("com.upgrad.quora.service")
 @EntityScan("com.upgrad.quora.service.entity")
+@EnableScheduling
 public class ServiceConfiguration {
+
+    /**
+     * JwtTokenProvider signing and verifying the access tokens with a key ring derived from the server secret.
+     */
+    @Bean
+    public JwtTokenProvider jwtTokenProvider(@Value("${quora.auth.jwt.secret}") final String secret,
+                                             @Value("${quora.auth.jwt.key-rotation-hours:24}") final long keyRotationHours,
+                                             @Value("${quora.auth.token-validity-hours:8}") final long tokenValidityHours) {
+        return new JwtTokenProvider(secret, Duration.ofHours(keyRotationHours), Duration.ofHours(tokenValidityHours));
+    }
 }
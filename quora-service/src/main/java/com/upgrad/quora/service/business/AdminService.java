@@ -1,6 +1,13 @@
 package com.upgrad.quora.service.business;
 
-import com.upgrad.quora.service.dao.UserAuthRepository;
+import com.upgrad.quora.service.cache.AccessTokenCache;
+import com.upgrad.quora.service.cache.LatestQuestions;
+import com.upgrad.quora.service.cache.QuestionCache;
+import com.upgrad.quora.service.cache.QuestionSuggestions;
+import com.upgrad.quora.service.cache.SecondLevelCache;
+import com.upgrad.quora.service.cache.SimilarQuestions;
+import com.upgrad.quora.service.cache.UserQuestionsCache;
+import com.upgrad.quora.service.dao.QuestionRepository;
 import com.upgrad.quora.service.dao.UserRepository;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
@@ -11,11 +18,43 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+
 @Service
 public class AdminService {
 
     @Autowired
-    private UserAuthRepository authRepository;
+    private AuthorizationService authorizationService;
+
+    @Autowired
+    private AccessTokenCache accessTokenCache;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Autowired
+    private SecondLevelCache secondLevelCache;
+
+    @Autowired
+    private QuestionCache questionCache;
+
+    @Autowired
+    private QuestionSuggestions questionSuggestions;
+
+    @Autowired
+    private SimilarQuestions similarQuestions;
+
+    @Autowired
+    private LatestQuestions latestQuestions;
+
+    @Autowired
+    private UserQuestionsCache userQuestionsCache;
+
+    @Autowired
+    private RelatedQuestionsJob relatedQuestionsJob;
+
+    @Autowired
+    private QuestionRepository questionRepository;
 
     @Autowired
     private UserRepository userRepository;
@@ -32,15 +71,7 @@ public class AdminService {
     @Transactional(propagation = Propagation.REQUIRED)
     public UserEntity deleteUser(final String userId, final String accessToken)
             throws AuthorizationFailedException, UserNotFoundException {
-        UserAuthEntity userAuthEntity = this.authRepository.findByAccessToken(accessToken);
-
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        }
-
-        if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException("ATHR-002", "User is signed out");
-        }
+        UserAuthEntity userAuthEntity = this.authorizationService.authorize(accessToken, "User is signed out");
 
         if (!userAuthEntity.getUserEntity().getRole().equals("admin")) {
             throw new AuthorizationFailedException(
@@ -53,7 +84,18 @@ public class AdminService {
             throw new UserNotFoundException(
                     "USR-001", "User with entered uuid to be deleted does not exist");
         }
+        // The questions of the user are deleted by ON DELETE CASCADE, read their ids before they are gone
+        final List<Integer> questionIds = this.questionRepository.findQuestionIdsByUserId(existingUser.getId());
         this.userRepository.delete(existingUser);
+        this.accessTokenCache.invalidateUser(existingUser.getId());
+        this.secondLevelCache.evictQuestions();
+        this.questionCache.invalidateUser(existingUser.getId());
+        questionIds.forEach(this.questionSuggestions::remove);
+        questionIds.forEach(this.similarQuestions::remove);
+        questionIds.forEach(this.latestQuestions::remove);
+        this.userQuestionsCache.invalidate(existingUser.getUuid());
+        questionIds.forEach(this.relatedQuestionsJob::questionDeleted);
+        this.tokenRevocationList.revokeUser(existingUser.getUuid());
         return existingUser;
     }
 }
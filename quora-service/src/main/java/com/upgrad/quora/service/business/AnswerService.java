@@ -1,36 +1,61 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.QuestionCache;
+import com.upgrad.quora.service.cache.SecondLevelCache;
+import com.upgrad.quora.service.cache.UserQuestionsCache;
+import com.upgrad.quora.service.common.KeysetPage;
 import com.upgrad.quora.service.dao.AnswerRepository;
+import com.upgrad.quora.service.dao.AnswerSummary;
+import com.upgrad.quora.service.dao.QuestionDetail;
 import com.upgrad.quora.service.dao.QuestionRepository;
-import com.upgrad.quora.service.dao.UserAuthRepository;
 import com.upgrad.quora.service.dao.UserRepository;
 import com.upgrad.quora.service.entity.AnswerEntity;
-import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.exception.AnswerNotFoundException;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.InvalidCursorException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.ZonedDateTime;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class AnswerService {
 
     @Autowired
-    private UserAuthRepository authRepository;
+    private AuthorizationService authorizationService;
 
     @Autowired
     private QuestionRepository questionRepository;
 
+    @Autowired
+    private QuestionCache questionCache;
+
+    @Autowired
+    private SecondLevelCache secondLevelCache;
+
+    @Autowired
+    private UserQuestionsCache userQuestionsCache;
+
     @Autowired
     private AnswerRepository answerRepository;
 
+    @Value("${quora.pagination.default-limit:50}")
+    private int defaultPageSize;
+
+    @Value("${quora.pagination.max-limit:200}")
+    private int maxPageSize;
+
 
     /**
      * Add answer into the database
@@ -47,22 +72,27 @@ public class AnswerService {
                                      final String accessToken,
                                      final String questionId) throws AuthorizationFailedException,
             InvalidQuestionException {
-        UserAuthEntity userAuthEntity = authRepository.findByAccessToken(accessToken);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException(
-                    "ATHR-002", "User is signed out.Sign in first to post an answer");
-        }
-        QuestionEntity questionEntity = questionRepository.findQuestionByUuid(questionId);
-        if (questionEntity == null) {
+        UserAuthEntity userAuthEntity = authorizationService.authorize(
+                accessToken, "User is signed out.Sign in first to post an answer");
+        QuestionDetail question = questionCache.findByUuid(questionId);
+        if (question == null) {
             throw new InvalidQuestionException("QUES-001", "The question entered is invalid");
         }
         answerEntity.setUuid(UUID.randomUUID().toString());
         answerEntity.setDate(ZonedDateTime.now());
-        answerEntity.setQuestionEntity(questionEntity);
+        // The cached question may have been deleted on another instance. Counting the answer first checks that
+        // the row still exists and locks it, so that it cannot be deleted before the answer is inserted.
+        if (questionRepository.recordAnswerPosted(question.getId(), answerEntity.getDate()) == 0) {
+            questionCache.invalidate(questionId);
+            throw new InvalidQuestionException("QUES-001", "The question entered is invalid");
+        }
+        // A reference is enough to write the foreign key, the question is not loaded
+        answerEntity.setQuestionEntity(questionRepository.getOne(question.getId()));
         answerEntity.setUserEntity(userAuthEntity.getUserEntity());
-        return answerRepository.save(answerEntity);
+        answerRepository.save(answerEntity);
+        secondLevelCache.evictQuestion(question.getId());
+        userQuestionsCache.invalidate(question.getUserUuid());
+        return answerEntity;
     }
 
     /**
@@ -79,13 +109,8 @@ public class AnswerService {
     public AnswerEntity editAnswer(
             final String accessToken, final String answerId, final String newAnswer)
             throws AnswerNotFoundException, AuthorizationFailedException {
-        UserAuthEntity userAuthEntity = authRepository.findByAccessToken(accessToken);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException(
-                    "ATHR-002", "User is signed out.Sign in first to edit an answer");
-        }
+        UserAuthEntity userAuthEntity = authorizationService.authorize(
+                accessToken, "User is signed out.Sign in first to edit an answer");
         AnswerEntity answerEntity = answerRepository.findAnswerByUuid(answerId);
         if (answerEntity == null) {
             throw new AnswerNotFoundException("ANS-001", "Entered answer uuid does not exist");
@@ -112,13 +137,8 @@ public class AnswerService {
     public AnswerEntity deleteAnswer(final String answerId, final String accessToken)
             throws AuthorizationFailedException, AnswerNotFoundException {
 
-        UserAuthEntity userAuthEntity = authRepository.findByAccessToken(accessToken);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException(
-                    "ATHR-002", "User is signed out.Sign in first to delete an answer");
-        }
+        UserAuthEntity userAuthEntity = authorizationService.authorize(
+                accessToken, "User is signed out.Sign in first to delete an answer");
 
         AnswerEntity answerEntity = answerRepository.findAnswerByUuid(answerId);
         if (answerEntity == null) {
@@ -128,6 +148,10 @@ public class AnswerService {
                 || answerEntity.getUserEntity().getUuid()
                 .equals(userAuthEntity.getUserEntity().getUuid())) {
              answerRepository.delete(answerEntity);
+             final Integer questionId = answerEntity.getQuestionEntity().getId();
+             questionRepository.recordAnswerDeleted(questionId, answerEntity.getId());
+             secondLevelCache.evictQuestion(questionId);
+             userQuestionsCache.invalidate(answerEntity.getQuestionEntity().getUserEntity().getUuid());
              return answerEntity;
         } else {
             throw new AuthorizationFailedException(
@@ -136,30 +160,68 @@ public class AnswerService {
     }
 
     /**
-     * Get all answer's
+     * Get a page of the answers to a question. The answers and the existence of the question are read
+     * with one query.
      *
      * @param questionId : questionid of which you want to see all answers
      * @param accessToken : access-token for authentication
+     * @param cursor : cursor of the page, null for the first page
+     * @param limit : page size, null for the default page size
      * @throws AuthorizationFailedException : if authentication is failed
      * @throws InvalidQuestionException : if question id is invalid
-     * @return returns all the answers for a question
+     * @throws InvalidCursorException : if the cursor is invalid
+     * @return returns a page of the answers for a question in the order they were posted
      */
-    public List<AnswerEntity> getAllAnswersToQuestion(
-            final String questionId, final String accessToken)
-            throws AuthorizationFailedException, InvalidQuestionException {
-        UserAuthEntity userAuthEntity = authRepository.findByAccessToken(accessToken);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException(
-                    "ATHR-002", "User is signed out.Sign in first to get the answers");
+    public KeysetPage<AnswerSummary> getAllAnswersToQuestion(
+            final String questionId, final String accessToken, final String cursor, final Integer limit)
+            throws AuthorizationFailedException, InvalidQuestionException, InvalidCursorException {
+        authorizationService.authorize(accessToken, "User is signed out.Sign in first to get the answers");
+        final int afterId = KeysetPage.decodeCursor(cursor);
+        final int pageSize = KeysetPage.limit(limit, defaultPageSize, maxPageSize);
+        final List<AnswerSummary> rows =
+                answerRepository.findAnswersToQuestionAfter(questionId, afterId, PageRequest.of(0, pageSize + 1));
+        if (rows.isEmpty()) {
+            throw new InvalidQuestionException(
+                    "QUES-001", "The question with entered uuid whose details are to be seen does not exist");
+        }
+        if (rows.get(0).getId() == null) {
+            return KeysetPage.of(Collections.<AnswerSummary>emptyList(), pageSize, AnswerSummary::getId);
         }
-        QuestionEntity questionEntity = questionRepository.findQuestionByUuid(questionId);
-        if (questionEntity == null) {
+        return KeysetPage.of(rows, pageSize, AnswerSummary::getId);
+    }
+
+    /**
+     * Authorize user who wants to stream the answers to a question
+     *
+     * @param questionId  : uuid of the question
+     * @param accessToken : access-token for authentication
+     * @return the question
+     * @throws AuthorizationFailedException : if the token is unknown or signed out
+     * @throws InvalidQuestionException     : if the question does not exist
+     */
+    public QuestionDetail authorizeAnswerListing(final String questionId, final String accessToken)
+            throws AuthorizationFailedException, InvalidQuestionException {
+        authorizationService.authorize(accessToken, "User is signed out.Sign in first to get the answers");
+        QuestionDetail question = questionCache.findByUuid(questionId);
+        if (question == null) {
             throw new InvalidQuestionException(
                     "QUES-001", "The question with entered uuid whose details are to be seen does not exist");
         }
-        return answerRepository.findAllAnswerByQuestionEntity(questionEntity);
+        return question;
+    }
+
+    /**
+     * Passes every answer to the question to the action in the order they were posted. Answers are read
+     * from a database cursor as projections, which are not kept by the persistence context.
+     *
+     * @param question : the question
+     * @param action   : called for each answer
+     */
+    @Transactional(readOnly = true)
+    public void forEachAnswerToQuestion(final QuestionDetail question, final Consumer<AnswerSummary> action) {
+        try (Stream<AnswerSummary> answers = answerRepository.streamAllAnswersToQuestion(question.getId())) {
+            answers.forEach(action);
+        }
     }
 
 }
@@ -0,0 +1,102 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.cache.SecondLevelCache;
+import com.upgrad.quora.service.cache.UserQuestionsCache;
+import com.upgrad.quora.service.dao.QuestionRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job recomputing the answer count and last answer time of every question from ANSWER. The
+ * values are updated as answers are posted and deleted, but answers removed by the cascading delete of
+ * their author are not counted down, and a recount racing with a new answer can miss it until the next
+ * run. Questions are walked in id order in batches, each in its own transaction.
+ */
+@Component
+public class AnswerStatsReconciler {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AnswerStatsReconciler.class);
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private SecondLevelCache secondLevelCache;
+
+    @Autowired
+    private UserQuestionsCache userQuestionsCache;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.answer-stats.reconciler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.answer-stats.reconciler.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${quora.answer-stats.reconciler.pause-ms:100}")
+    private long pauseMillis;
+
+    private Counter repaired;
+
+    private Timer reconcileTimer;
+
+    @PostConstruct
+    public void init() {
+        repaired = meterRegistry.counter("quora.questions.answer-stats.repaired");
+        reconcileTimer = meterRegistry.timer("quora.questions.answer-stats.reconcile");
+    }
+
+    /**
+     * Recounts the answers of all questions and repairs the ones which drifted.
+     */
+    @Scheduled(initialDelayString = "${quora.answer-stats.reconciler.interval-ms:3600000}",
+            fixedDelayString = "${quora.answer-stats.reconciler.interval-ms:3600000}")
+    public void reconcile() {
+        if (!enabled) {
+            return;
+        }
+        final long started = System.nanoTime();
+        long fixed = 0;
+        try {
+            Integer afterId = 0;
+            Integer upToId;
+            while ((upToId = questionRepository.findBatchEnd(afterId, batchSize)) != null) {
+                final Integer from = afterId;
+                final Integer to = upToId;
+                final Integer count = transactionTemplate.execute(
+                        status -> questionRepository.reconcileAnswerStats(from, to));
+                fixed += count;
+                repaired.increment(count);
+                afterId = upToId;
+                TimeUnit.MILLISECONDS.sleep(pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            final long elapsed = System.nanoTime() - started;
+            reconcileTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            if (fixed > 0) {
+                secondLevelCache.evictQuestions();
+                userQuestionsCache.invalidateAll();
+                LOG.info("Repaired the answer stats of {} questions in {} ms", fixed,
+                        TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+        }
+    }
+}
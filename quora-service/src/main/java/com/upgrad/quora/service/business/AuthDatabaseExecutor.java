@@ -0,0 +1,86 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.QueryStatistics;
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the database work that follows the password hashing of sign-up and sign-in, the user insert and the
+ * session transaction, so that a hashing thread is free for the next hash as soon as its hash is done. The
+ * pool is sized for threads waiting on the database, by default to the connection pool. When its bounded
+ * queue is full the stage fails with SRV-001.
+ */
+@Component
+public class AuthDatabaseExecutor implements Executor {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.auth.database-work.threads:10}")
+    private int threads;
+
+    @Value("${quora.auth.database-work.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${quora.auth.password-hashing.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    public void init() {
+        executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new DatabaseWorkThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        Gauge.builder("quora.auth.database.work.queue.depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Queue a stage of a sign-up or sign-in, with the query statistics of the calling thread bound for it.
+     *
+     * @throws CompletionException : caused by ServiceUnavailableException SRV-001 if the queue is full, which
+     * fails the stage
+     */
+    @Override
+    public void execute(final Runnable stage) {
+        try {
+            executor.execute(QueryStatistics.propagate(stage));
+        } catch (RejectedExecutionException e) {
+            throw new CompletionException(new ServiceUnavailableException(
+                    "SRV-001", "Too many requests waiting for the database, try again later", retryAfterSeconds));
+        }
+    }
+
+    private static class DatabaseWorkThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "auth-database-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
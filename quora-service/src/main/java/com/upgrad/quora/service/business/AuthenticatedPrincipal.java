@@ -0,0 +1,82 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.entity.UserEntity;
+
+/**
+ * The outcome of resolving an access token once for the current request: the caller's session and
+ * user id, uuid and role if the token is known.
+ */
+public final class AuthenticatedPrincipal {
+
+    public enum Status {
+        /** The access token does not belong to any session. */
+        UNKNOWN,
+        /** The session of the access token has been signed out. */
+        SIGNED_OUT,
+        /** The session of the access token is signed in. */
+        SIGNED_IN
+    }
+
+    private final String accessToken;
+    private final Status status;
+    private final UserAuthEntity session;
+
+    private AuthenticatedPrincipal(final String accessToken, final Status status, final UserAuthEntity session) {
+        this.accessToken = accessToken;
+        this.status = status;
+        this.session = session;
+    }
+
+    public static AuthenticatedPrincipal unknown(final String accessToken) {
+        return new AuthenticatedPrincipal(accessToken, Status.UNKNOWN, null);
+    }
+
+    public static AuthenticatedPrincipal signedOut(final String accessToken) {
+        return new AuthenticatedPrincipal(accessToken, Status.SIGNED_OUT, null);
+    }
+
+    public static AuthenticatedPrincipal of(final String accessToken, final UserAuthEntity session) {
+        if (session == null) {
+            return unknown(accessToken);
+        }
+        final Status status = session.getLogoutAt() != null ? Status.SIGNED_OUT : Status.SIGNED_IN;
+        return new AuthenticatedPrincipal(accessToken, status, session);
+    }
+
+    public String getAccessToken() {
+        return accessToken;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isSignedIn() {
+        return status == Status.SIGNED_IN;
+    }
+
+    public UserAuthEntity getSession() {
+        return session;
+    }
+
+    public UserEntity getUserEntity() {
+        return session == null ? null : session.getUserEntity();
+    }
+
+    public Integer getUserId() {
+        return session == null ? null : session.getUserEntity().getId();
+    }
+
+    public String getUuid() {
+        return session == null ? null : session.getUserEntity().getUuid();
+    }
+
+    public String getRole() {
+        return session == null ? null : session.getUserEntity().getRole();
+    }
+
+    public boolean isAdmin() {
+        return "admin".equals(getRole());
+    }
+}
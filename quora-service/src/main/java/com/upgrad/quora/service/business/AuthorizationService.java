@@ -0,0 +1,125 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import com.upgrad.quora.service.cache.AccessTokenCache;
+import com.upgrad.quora.service.cache.AccessTokenFilter;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.Date;
+
+/**
+ * Resolves the access token of a request into an AuthenticatedPrincipal. The principal is kept as a
+ * request attribute, so each request performs a single auth lookup no matter how many times it is
+ * authorized. JWTs are verified and checked against the revocation list in memory first, and unknown
+ * tokens are rejected by the access token filter, so only tokens that pass those checks and are not
+ * cached reach the database.
+ */
+@Service
+public class AuthorizationService {
+
+    private static final String PRINCIPAL_ATTRIBUTE = AuthenticatedPrincipal.class.getName();
+
+    @Autowired
+    private AccessTokenCache accessTokenCache;
+
+    @Autowired
+    private AccessTokenFilter accessTokenFilter;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    /** Tokens which are not JWTs are only issued by older releases and the test fixtures. */
+    @Value("${quora.auth.jwt.reject-opaque-tokens:false}")
+    private boolean rejectOpaqueTokens;
+
+    /**
+     * Resolve the access token, reusing the principal already resolved for the current request.
+     *
+     * @param accessToken : access-token sent by the client
+     * @return AuthenticatedPrincipal of the access token
+     */
+    public AuthenticatedPrincipal resolve(final String accessToken) {
+        final AuthenticatedPrincipal current = current();
+        if (current != null && current.getAccessToken().equals(accessToken)) {
+            return current;
+        }
+        final AuthenticatedPrincipal principal = lookup(accessToken);
+        final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes != null) {
+            attributes.setAttribute(PRINCIPAL_ATTRIBUTE, principal, RequestAttributes.SCOPE_REQUEST);
+        }
+        return principal;
+    }
+
+    private AuthenticatedPrincipal lookup(final String accessToken) {
+        Date issuedAt = null;
+        if (JwtTokenProvider.isJwt(accessToken)) {
+            final DecodedJWT jwt = jwtTokenProvider.verifyToken(accessToken);
+            if (jwt == null) {
+                return AuthenticatedPrincipal.unknown(accessToken);
+            }
+            issuedAt = jwt.getIssuedAt();
+            switch (tokenRevocationList.check(jwt)) {
+                case SIGNED_OUT:
+                    return AuthenticatedPrincipal.signedOut(accessToken);
+                case USER_DELETED:
+                    return AuthenticatedPrincipal.unknown(accessToken);
+                default:
+                    break;
+            }
+        } else if (rejectOpaqueTokens) {
+            return AuthenticatedPrincipal.unknown(accessToken);
+        }
+        if (!accessTokenFilter.mightContain(accessToken, issuedAt)) {
+            return AuthenticatedPrincipal.unknown(accessToken);
+        }
+        final UserAuthEntity session = accessTokenCache.findByAccessToken(accessToken);
+        if (session == null) {
+            accessTokenFilter.recordFalsePositive();
+        }
+        return AuthenticatedPrincipal.of(accessToken, session);
+    }
+
+    /**
+     * The principal resolved for the current request
+     *
+     * @return AuthenticatedPrincipal or null if none has been resolved yet
+     */
+    public AuthenticatedPrincipal current() {
+        final RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        return (AuthenticatedPrincipal) attributes.getAttribute(PRINCIPAL_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+    }
+
+    /**
+     * Authorize the user of the access token
+     *
+     * @param accessToken      : access-token sent by the client
+     * @param signedOutMessage : endpoint specific message returned when the user is signed out
+     * @return UserAuthEntity of the signed in user
+     * @throws AuthorizationFailedException : ATHR-001 if the token is unknown, ATHR-002 if it is signed out
+     */
+    public UserAuthEntity authorize(final String accessToken, final String signedOutMessage)
+            throws AuthorizationFailedException {
+        final AuthenticatedPrincipal principal = resolve(accessToken);
+        switch (principal.getStatus()) {
+            case UNKNOWN:
+                throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
+            case SIGNED_OUT:
+                throw new AuthorizationFailedException("ATHR-002", signedOutMessage);
+            default:
+                return principal.getSession();
+        }
+    }
+}
@@ -1,6 +1,5 @@
 package com.upgrad.quora.service.business;
 
-import com.upgrad.quora.service.dao.UserAuthRepository;
 import com.upgrad.quora.service.dao.UserRepository;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
@@ -9,14 +8,12 @@ import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.time.ZonedDateTime;
-
 @Service
 public class CommonService {
 
     @Autowired private UserRepository userRepository;
 
-    @Autowired private UserAuthRepository authRepository;
+    @Autowired private AuthorizationService authorizationService;
 
     /**
      * Retrieving the UserEntity based on userId
@@ -43,19 +40,7 @@ public class CommonService {
      */
     public UserAuthEntity authorizeUser(final String authorization)
             throws AuthorizationFailedException {
-        UserAuthEntity userAuthEntity = authRepository.findByAccessToken(authorization);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else {
-            // Retrieve logout_at attribute value of UserAuthEntity to check if user has already signed
-            // out
-            ZonedDateTime logoutAt = userAuthEntity.getLogoutAt();
-            if (logoutAt != null) {
-                throw new AuthorizationFailedException(
-                        "ATHR-002", "User is signed out.Sign in first to get user details");
-            } else {
-                return userAuthEntity;
-            }
-        }
+        return authorizationService.authorize(
+                authorization, "User is signed out.Sign in first to get user details");
     }
 }
@@ -0,0 +1,31 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.cache.SimilarQuestions;
+import com.upgrad.quora.service.entity.QuestionEntity;
+
+import java.util.List;
+
+/**
+ * A question just posted, with the existing questions it looks like.
+ */
+public final class CreatedQuestion {
+
+    private final QuestionEntity question;
+    private final List<SimilarQuestions.Match> similarQuestions;
+
+    CreatedQuestion(final QuestionEntity question, final List<SimilarQuestions.Match> similarQuestions) {
+        this.question = question;
+        this.similarQuestions = similarQuestions;
+    }
+
+    public QuestionEntity getQuestion() {
+        return question;
+    }
+
+    /**
+     * @return existing questions similar to the new one, most similar first
+     */
+    public List<SimilarQuestions.Match> getSimilarQuestions() {
+        return similarQuestions;
+    }
+}
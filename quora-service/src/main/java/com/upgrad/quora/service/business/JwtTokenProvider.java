@@ -1,54 +1,198 @@
 package com.upgrad.quora.service.business;
 
 import com.auth0.jwt.JWT;
+import com.auth0.jwt.JWTVerifier;
 import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.JWTVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
 import com.upgrad.quora.service.common.GenericErrorCode;
 import com.upgrad.quora.service.common.UnexpectedException;
 
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.time.Duration;
 import java.time.ZonedDateTime;
-import java.time.temporal.ChronoField;
+import java.util.Collections;
 import java.util.Date;
-import java.util.UUID;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
- * This class is used in the project to provide JWT token after successful authentication
+ * This class is used in the project to provide JWT token after successful authentication and to verify
+ * the tokens presented by the clients.
+ * <p>
+ * Tokens are signed with a key ring derived from the server secret. Time is divided into rotation
+ * periods and each period has its own key, derived as HMAC-SHA512(secret, period number); the period
+ * number is the key id in the token header. Every instance therefore derives the same keys without
+ * coordination. The ring holds prebuilt Algorithm and JWTVerifier instances for the current period, the
+ * previous periods whose tokens may not have expired yet and the next period, for instances whose clock
+ * runs slightly ahead.
  */
 public class JwtTokenProvider {
     private static final String TOKEN_ISSUER = "https://quora.io";
+    private static final String KEY_DERIVATION_ALGORITHM = "HmacSHA512";
 
-    private final Algorithm algorithm;
+    /** Shortest secret accepted; a shorter one could be guessed offline from any token. */
+    private static final int MIN_SECRET_LENGTH = 32;
+
+    private final byte[] secret;
+
+    private final long rotationMillis;
+
+    private final int previousKeys;
+
+    private volatile KeyRing keyRing;
 
     /**
-     * A constructor for JwtTokenProvider class which receives user password as an argument to be used in the signature part of JWT access token.
+     * A constructor for JwtTokenProvider class which receives the server secret as an argument to derive the keys used in the signature part of JWT access token.
+     *
+     * @param secret        - server secret, at least 32 characters
+     * @param rotation      - period after which a new key is used for signing
+     * @param tokenValidity - validity of the tokens, previous keys are kept until their tokens have expired
      */
-    public JwtTokenProvider(final String secret) {
-        try {
-            algorithm = Algorithm.HMAC512(secret);
-        } catch (IllegalArgumentException e) {
-            throw new UnexpectedException(GenericErrorCode.GEN_001);
+    public JwtTokenProvider(final String secret, final Duration rotation, final Duration tokenValidity) {
+        if (secret == null || secret.length() < MIN_SECRET_LENGTH) {
+            throw new IllegalArgumentException("quora.auth.jwt.secret must be set to at least " + MIN_SECRET_LENGTH
+                    + " characters, for example through the QUORA_JWT_SECRET environment variable");
         }
+        this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        this.rotationMillis = rotation.toMillis();
+        this.previousKeys = (int) ((tokenValidity.toMillis() + rotationMillis - 1) / rotationMillis);
+        this.keyRing = buildKeyRing(epoch(System.currentTimeMillis()), Collections.emptyMap());
     }
 
 
     /**
-     * This method receives uuid of the user, current time and expiry time of the access token.
+     * This method receives uuid of the user, uuid of the session, current time and expiry time of the access token.
      * This information is stored in the payload of the JWT token and the JWT token is returned by this method.
      */
     /**
      * @param userUuid        - uuid of the user
+     * @param sessionUuid     - uuid of the session, used as the JWT id
      * @param issuedDateTime  - current time
      * @param expiresDateTime - expiry time of the JWT token
      * @return - generated JWT token
      */
-    public String generateToken(final String userUuid, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
+    public String generateToken(final String userUuid, final String sessionUuid, final ZonedDateTime issuedDateTime, final ZonedDateTime expiresDateTime) {
 
-        final Date issuedAt = new Date(issuedDateTime.getLong(ChronoField.INSTANT_SECONDS));
-        final Date expiresAt = new Date(expiresDateTime.getLong(ChronoField.INSTANT_SECONDS));
+        final Date issuedAt = Date.from(issuedDateTime.toInstant());
+        final Date expiresAt = Date.from(expiresDateTime.toInstant());
+        final SigningKey key = currentKeyRing().current;
 
         return JWT.create().withIssuer(TOKEN_ISSUER) //
-                .withKeyId(UUID.randomUUID().toString())
+                .withKeyId(key.keyId)
+                .withJWTId(sessionUuid)
                 .withAudience(userUuid) //
-                .withIssuedAt(issuedAt).withExpiresAt(expiresAt).sign(algorithm);
+                .withIssuedAt(issuedAt).withExpiresAt(expiresAt).sign(key.algorithm);
+    }
+
+    /**
+     * Verifies the signature, issuer and expiry of a token without touching the database. The key is
+     * picked by the key id in the token header.
+     *
+     * @param token - access token sent by the client
+     * @return - the decoded token, or null if the token is not valid or its key is not in the ring
+     */
+    public DecodedJWT verifyToken(final String token) {
+        try {
+            final String keyId = JWT.decode(token).getKeyId();
+            final SigningKey key = keyId == null ? null : currentKeyRing().keys.get(keyId);
+            if (key == null) {
+                return null;
+            }
+            return key.verifier.verify(token);
+        } catch (JWTVerificationException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param token - access token sent by the client
+     * @return - true if the token has the header.payload.signature shape of a JWT
+     */
+    public static boolean isJwt(final String token) {
+        int dots = 0;
+        for (int i = 0; i < token.length(); i++) {
+            if (token.charAt(i) == '.') {
+                dots++;
+            }
+        }
+        return dots == 2;
+    }
+
+    /**
+     * Rotates the ring when a new period has started, reusing the keys of the periods both rings share.
+     */
+    private KeyRing currentKeyRing() {
+        final long epoch = epoch(System.currentTimeMillis());
+        KeyRing ring = keyRing;
+        if (ring.epoch != epoch) {
+            synchronized (this) {
+                ring = keyRing;
+                if (ring.epoch != epoch) {
+                    ring = buildKeyRing(epoch, ring.keys);
+                    keyRing = ring;
+                }
+            }
+        }
+        return ring;
+    }
+
+    private long epoch(final long millis) {
+        return millis / rotationMillis;
+    }
+
+    private KeyRing buildKeyRing(final long epoch, final Map<String, SigningKey> existing) {
+        final Map<String, SigningKey> keys = new HashMap<>();
+        for (long keyEpoch = epoch - previousKeys; keyEpoch <= epoch + 1; keyEpoch++) {
+            final String keyId = Long.toString(keyEpoch);
+            final SigningKey key = existing.get(keyId);
+            keys.put(keyId, key != null ? key : deriveKey(keyId));
+        }
+        return new KeyRing(epoch, keys.get(Long.toString(epoch)), Collections.unmodifiableMap(keys));
+    }
+
+    private SigningKey deriveKey(final String keyId) {
+        try {
+            final Mac mac = Mac.getInstance(KEY_DERIVATION_ALGORITHM);
+            mac.init(new SecretKeySpec(secret, KEY_DERIVATION_ALGORITHM));
+            final Algorithm algorithm = Algorithm.HMAC512(mac.doFinal(keyId.getBytes(StandardCharsets.UTF_8)));
+            return new SigningKey(keyId, algorithm, JWT.require(algorithm).withIssuer(TOKEN_ISSUER).build());
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        }
+    }
+
+    /**
+     * Key of one rotation period with its prebuilt, thread-safe Algorithm and JWTVerifier.
+     */
+    private static final class SigningKey {
+        private final String keyId;
+        private final Algorithm algorithm;
+        private final JWTVerifier verifier;
+
+        private SigningKey(final String keyId, final Algorithm algorithm, final JWTVerifier verifier) {
+            this.keyId = keyId;
+            this.algorithm = algorithm;
+            this.verifier = verifier;
+        }
+    }
+
+    /**
+     * Immutable set of keys usable during one rotation period.
+     */
+    private static final class KeyRing {
+        private final long epoch;
+        private final SigningKey current;
+        private final Map<String, SigningKey> keys;
+
+        private KeyRing(final long epoch, final SigningKey current, final Map<String, SigningKey> keys) {
+            this.epoch = epoch;
+            this.current = current;
+            this.keys = keys;
+        }
     }
 
 }
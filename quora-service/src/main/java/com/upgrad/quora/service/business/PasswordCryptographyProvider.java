@@ -1,48 +1,134 @@
 package com.upgrad.quora.service.business;
 
 
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Base64;
 import java.util.Random;
+import javax.annotation.PostConstruct;
 import javax.crypto.SecretKey;
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 
+/**
+ * Hashes passwords with PBKDF2WithHmacSHA512. Hashes are stored as "v1$iterations$keyLength$hex" so the
+ * parameters travel with each hash; hashes without a prefix were created with 1000 iterations and a
+ * 64 bit key. Unless a fixed iteration count is configured, the count is calibrated at startup so that
+ * one hash takes about the configured target time on this host. Hashes are upgraded when their iteration
+ * count falls well short of the current one or of the minimum, so that hosts calibrating slightly different
+ * counts do not rehash each other's passwords.
+ */
 @Component
 public class PasswordCryptographyProvider {
 
+    private static final Logger LOG = LoggerFactory.getLogger(PasswordCryptographyProvider.class);
+
     private static String SECRET_KEY_ALGORITHM = "PBKDF2WithHmacSHA512";
-    private static int HASHING_ITERATIONS = 1000;
-    private static int HASHING_KEY_LENGTH = 64;
+    private static final String HASH_VERSION = "v1";
+    private static final String SEPARATOR = "$";
+    private static final int LEGACY_HASHING_ITERATIONS = 1000;
+    private static final int LEGACY_HASHING_KEY_LENGTH = 64;
+    private static final int CALIBRATION_ITERATIONS = 10000;
+    private static final int CALIBRATION_ROUNDS = 5;
+    /** Share of a calibrated iteration count that a stored hash may have without being upgraded. */
+    private static final double CALIBRATION_TOLERANCE = 0.75;
     private final static char[] hexArray = "0123456789ABCDEF".toCharArray();
 
+    /** Fixed iteration count, 0 to calibrate it at startup. */
+    @Value("${quora.auth.password-hashing.iterations:0}")
+    private int configuredIterations;
+
+    @Value("${quora.auth.password-hashing.min-iterations:10000}")
+    private int minIterations;
+
+    @Value("${quora.auth.password-hashing.target-millis:50}")
+    private long targetMillis;
+
+    @Value("${quora.auth.password-hashing.key-length:512}")
+    private int keyLength;
+
+    private volatile int iterations;
+
+    /** Stored hashes with fewer iterations are upgraded on sign-in. */
+    private volatile int rehashBelowIterations;
+
+    @PostConstruct
+    public void init() {
+        iterations = configuredIterations > 0 ? configuredIterations : calibrate();
+        rehashBelowIterations = configuredIterations > 0 ? configuredIterations
+                : Math.max(minIterations, (int) (iterations * CALIBRATION_TOLERANCE));
+        LOG.info("Hashing passwords with {} iterations and a {} bit key", iterations, keyLength);
+    }
+
+    /**
+     * Measures the hashing speed of this host and scales the iteration count to the target time.
+     *
+     * @return iteration count, rounded to a thousand and not below the configured minimum
+     */
+    private int calibrate() {
+        final byte[] salt = generateSaltBytes();
+        final char[] password = "calibration".toCharArray();
+        long bestNanos = Long.MAX_VALUE;
+        for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+            final long started = System.nanoTime();
+            hashPassword(password, salt, CALIBRATION_ITERATIONS, keyLength);
+            bestNanos = Math.min(bestNanos, System.nanoTime() - started);
+        }
+        final double iterationsPerMilli = CALIBRATION_ITERATIONS / (bestNanos / 1_000_000d);
+        final long calibrated = Math.round(iterationsPerMilli * targetMillis / 1000) * 1000;
+        return (int) Math.max(minIterations, Math.min(Integer.MAX_VALUE, calibrated));
+    }
+
     /**
-     * This method generates Salt and hashed Password
+     * This method generates Salt and hashed Password with the current parameters
      *
      * @param password char array.
-     * @return String array with [0] encoded salt [1] hashed password.
+     * @return String array with [0] encoded salt [1] versioned hashed password.
      */
     public String[] encrypt(final String password) {
+        final int currentIterations = iterations;
         byte[] salt = generateSaltBytes();
-        byte[] hashedPassword = hashPassword(password.toCharArray(), salt);
-        return new String[]{getBase64EncodedBytesAsString(salt), bytesToHex(hashedPassword)};
+        byte[] hashedPassword = hashPassword(password.toCharArray(), salt, currentIterations, keyLength);
+        return new String[]{getBase64EncodedBytesAsString(salt),
+                HASH_VERSION + SEPARATOR + currentIterations + SEPARATOR + keyLength + SEPARATOR
+                        + bytesToHex(hashedPassword)};
     }
 
     /**
-     * This method re-generates hashed Password from raw-password and salt.
-     * This will be used during authentication.
+     * This method re-generates the hashed Password from raw-password and salt with the parameters of the
+     * stored hash and compares the two. This will be used during authentication.
      *
-     * @param password char array.
-     * @param salt     byte array.
-     * @return byte array of hashed password.
+     * @param password       raw password.
+     * @param salt           encoded salt.
+     * @param storedPassword versioned or legacy hashed password.
+     * @return true if the password matches.
+     */
+    public boolean matches(final String password, final String salt, final String storedPassword) {
+        final HashParameters parameters = HashParameters.parse(storedPassword);
+        final byte[] hashedPassword = hashPassword(password.toCharArray(), getBase64DecodedStringAsBytes(salt),
+                parameters.iterations, parameters.keyLength);
+        return MessageDigest.isEqual(bytesToHex(hashedPassword).getBytes(), parameters.hash.getBytes());
+    }
+
+    /**
+     * @param storedPassword versioned or legacy hashed password.
+     * @return true if the hash was created with fewer iterations or a shorter key than the current ones allow.
      */
-    public static String encrypt(final String password, String salt) {
-        return bytesToHex(hashPassword(password.toCharArray(), getBase64DecodedStringAsBytes(salt)));
+    public boolean needsRehash(final String storedPassword) {
+        final HashParameters parameters = HashParameters.parse(storedPassword);
+        return parameters.iterations < rehashBelowIterations || parameters.keyLength < keyLength;
+    }
+
+    public int getIterations() {
+        return iterations;
     }
 
     /**
@@ -60,14 +146,17 @@ public class PasswordCryptographyProvider {
     /**
      * This method generates hashed Password
      *
-     * @param password char array.
-     * @param salt     byte array.
+     * @param password   char array.
+     * @param salt       byte array.
+     * @param iterations PBKDF2 iteration count.
+     * @param keyLength  length of the derived key in bits.
      * @return byte array of hashed password.
      */
-    private static byte[] hashPassword(final char[] password, final byte[] salt) {
+    private static byte[] hashPassword(final char[] password, final byte[] salt, final int iterations,
+                                       final int keyLength) {
         try {
             SecretKeyFactory skf = SecretKeyFactory.getInstance(SECRET_KEY_ALGORITHM);
-            PBEKeySpec spec = new PBEKeySpec(password, salt, HASHING_ITERATIONS, HASHING_KEY_LENGTH);
+            PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, keyLength);
             SecretKey key = skf.generateSecret(spec);
             byte[] res = key.getEncoded();
             return res;
@@ -93,6 +182,27 @@ public class PasswordCryptographyProvider {
     private static byte[] getBase64DecodedStringAsBytes(String decode) {
         return Base64.getDecoder().decode(decode);
     }
-}
 
+    /**
+     * Parameters and hex encoded hash of a stored password.
+     */
+    private static class HashParameters {
+        private final int iterations;
+        private final int keyLength;
+        private final String hash;
+
+        private HashParameters(final int iterations, final int keyLength, final String hash) {
+            this.iterations = iterations;
+            this.keyLength = keyLength;
+            this.hash = hash;
+        }
 
+        private static HashParameters parse(final String storedPassword) {
+            if (!storedPassword.startsWith(HASH_VERSION + SEPARATOR)) {
+                return new HashParameters(LEGACY_HASHING_ITERATIONS, LEGACY_HASHING_KEY_LENGTH, storedPassword);
+            }
+            final String[] parts = storedPassword.split("\\$");
+            return new HashParameters(Integer.parseInt(parts[1]), Integer.parseInt(parts[2]), parts[3]);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.QueryStatistics;
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs the CPU bound PBKDF2 password hashing of sign-up and sign-in on a dedicated pool sized to the
+ * number of cores, so that a burst of logins cannot occupy every servlet thread. The queue in front of
+ * the pool is bounded; when it is full the request is refused straight away instead of waiting.
+ */
+@Component
+public class PasswordHashingExecutor {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.auth.password-hashing.threads:0}")
+    private int threads;
+
+    @Value("${quora.auth.password-hashing.queue-capacity:256}")
+    private int queueCapacity;
+
+    @Value("${quora.auth.password-hashing.retry-after-seconds:1}")
+    private long retryAfterSeconds;
+
+    private ThreadPoolExecutor executor;
+
+    private Timer hashTimer;
+
+    @PostConstruct
+    public void init() {
+        final int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), new HashingThreadFactory(),
+                new ThreadPoolExecutor.AbortPolicy());
+        hashTimer = meterRegistry.timer("quora.auth.password.hash");
+        Gauge.builder("quora.auth.password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .register(meterRegistry);
+        Gauge.builder("quora.auth.password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Queue a hashing task
+     *
+     * @param operation : what the hash is for, "sign-up" or "sign-in", named in the message of a refusal
+     * @param task : computes the hash
+     * @return future completed with the result of the task on a hashing thread, where the query statistics
+     * of the caller stay bound for the task and the stages completed with it
+     * @throws ServiceUnavailableException : SRV-001 if the queue is full
+     */
+    public <T> CompletableFuture<T> submit(final String operation, final Supplier<T> task)
+            throws ServiceUnavailableException {
+        try {
+            return CompletableFuture.supplyAsync(() -> hashTimer.record(task),
+                    runnable -> executor.execute(QueryStatistics.propagate(runnable)));
+        } catch (RejectedExecutionException e) {
+            throw new ServiceUnavailableException(
+                    "SRV-001", "Too many " + operation + " requests, try again later", retryAfterSeconds);
+        }
+    }
+
+    private static class HashingThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, "password-hashing-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
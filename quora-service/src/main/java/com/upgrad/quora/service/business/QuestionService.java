@@ -1,22 +1,38 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.LatestQuestions;
+import com.upgrad.quora.service.cache.QuestionCache;
+import com.upgrad.quora.service.cache.QuestionSuggestions;
+import com.upgrad.quora.service.cache.SimilarQuestions;
+import com.upgrad.quora.service.cache.UserQuestionsCache;
+import com.upgrad.quora.service.common.KeysetPage;
+import com.upgrad.quora.service.common.OffsetPage;
+import com.upgrad.quora.service.dao.QuestionDetail;
 import com.upgrad.quora.service.dao.QuestionRepository;
-import com.upgrad.quora.service.dao.UserAuthRepository;
-import com.upgrad.quora.service.dao.UserRepository;
+import com.upgrad.quora.service.dao.QuestionSummary;
+import com.upgrad.quora.service.dao.RelatedQuestion;
 import com.upgrad.quora.service.entity.QuestionEntity;
 import com.upgrad.quora.service.entity.UserAuthEntity;
-import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthorizationFailedException;
+import com.upgrad.quora.service.exception.DuplicateQuestionException;
+import com.upgrad.quora.service.exception.InvalidCursorException;
 import com.upgrad.quora.service.exception.InvalidQuestionException;
 import com.upgrad.quora.service.exception.UserNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class QuestionService {
@@ -25,65 +41,220 @@ public class QuestionService {
     private QuestionRepository questionRepo;
 
     @Autowired
-    private UserAuthRepository userAuthRepo;
+    private QuestionCache questionCache;
 
     @Autowired
-    private UserRepository userRepo;
+    private QuestionSuggestions questionSuggestions;
+
+    @Autowired
+    private SimilarQuestions similarQuestions;
+
+    @Autowired
+    private LatestQuestions latestQuestions;
+
+    @Autowired
+    private RelatedQuestionsJob relatedQuestionsJob;
+
+    @Autowired
+    private AuthorizationService authorizationService;
+
+    @Autowired
+    private UserQuestionsCache userQuestionsCache;
+
+    @Value("${quora.pagination.default-limit:50}")
+    private int defaultPageSize;
+
+    @Value("${quora.pagination.max-limit:200}")
+    private int maxPageSize;
+
+    @Value("${quora.question-suggestions.default-limit:10}")
+    private int defaultSuggestions;
+
+    @Value("${quora.question-suggestions.max-limit:20}")
+    private int maxSuggestions;
+
+    @Value("${quora.latest-questions.default-limit:20}")
+    private int defaultLatest;
+
+    @Value("${quora.latest-questions.max-limit:100}")
+    private int maxLatest;
+
+    /** Questions at least this similar to an existing question are rejected as duplicates. */
+    @Value("${quora.similar-questions.duplicate-similarity:0.9}")
+    private double duplicateSimilarity;
+
+    /** Search results are paged up to this depth; deeper pages would rank and skip ever more rows. */
+    @Value("${quora.search.max-results:1000}")
+    private int maxSearchResults;
 
     /**
-     * Business logic to authorize user who wants to create question and create a question
+     * Business logic to authorize user who wants to create question and create a question, unless the
+     * same question has been asked before
      *
      * @param authorization
      * @param questionEntity
-     * @return QuestionEntity
+     * @return the created question and the existing questions similar to it
      * @throws AuthorizationFailedException
+     * @throws DuplicateQuestionException
      */
     @Transactional(propagation = Propagation.REQUIRED)
-    public QuestionEntity createQuestion(String authorization, QuestionEntity questionEntity)
-            throws AuthorizationFailedException {
-        UserAuthEntity userAuthEntity = userAuthRepo.findByAccessToken(authorization);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else {
-            // Retrieve logout_at attribute value of UserAuthEntity to check if user has already signed
-            // out
-            ZonedDateTime logoutAt = userAuthEntity.getLogoutAt();
-            if (logoutAt != null) {
-                throw new AuthorizationFailedException(
-                        "ATHR-002", "User is signed out.Sign in first to post a question");
-            } else {
-                // Assign a UUID to the question that is being created.
-                questionEntity.setUuid(UUID.randomUUID().toString());
-                questionEntity.setUserEntity(userAuthEntity.getUserEntity());
-                return questionRepo.save(questionEntity);
-            }
+    public CreatedQuestion createQuestion(String authorization, QuestionEntity questionEntity)
+            throws AuthorizationFailedException, DuplicateQuestionException {
+        UserAuthEntity userAuthEntity = authorizationService.authorize(
+                authorization, "User is signed out.Sign in first to post a question");
+        List<SimilarQuestions.Match> similar = similarQuestions.find(questionEntity.getContent());
+        if (!similar.isEmpty() && similar.get(0).getSimilarity() >= duplicateSimilarity) {
+            throw new DuplicateQuestionException(
+                    "QUES-002", "This question has already been asked as question " + similar.get(0).getUuid());
         }
+        // Assign a UUID to the question that is being created.
+        questionEntity.setUuid(UUID.randomUUID().toString());
+        questionEntity.setUserEntity(userAuthEntity.getUserEntity());
+        QuestionEntity createdQuestion = questionRepo.save(questionEntity);
+        questionSuggestions.put(createdQuestion.getId(), createdQuestion.getUuid(), createdQuestion.getContent());
+        similarQuestions.put(createdQuestion.getId(), createdQuestion.getContent());
+        latestQuestions.add(createdQuestion.getId(), createdQuestion.getUuid(), createdQuestion.getContent(),
+                createdQuestion.getDate());
+        relatedQuestionsJob.questionChanged(createdQuestion.getId(), createdQuestion.getContent());
+        userQuestionsCache.invalidate(userAuthEntity.getUserEntity().getUuid());
+        return new CreatedQuestion(createdQuestion, similar);
     }
 
     /**
-     * Business logic to authorize user who wants to get a list of all questions and return list of
+     * Business logic to authorize user who wants to get a list of all questions and return a page of
      * questions
      *
      * @param authorization
-     * @return list of all questions
+     * @param cursor : cursor of the page, null for the first page
+     * @param limit : page size, null for the default page size
+     * @return page of questions in the order they were posted
      * @throws AuthorizationFailedException
+     * @throws InvalidCursorException
      */
-    public List<QuestionEntity> getAllQuestions(final String authorization)
-            throws AuthorizationFailedException {
-        UserAuthEntity userAuthEntity = userAuthRepo.findByAccessToken(authorization);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else {
-            // Retrieve logout_at attribute value of UserAuthEntity to check if user has already signed
-            // out
-            ZonedDateTime logoutAt = userAuthEntity.getLogoutAt();
-            if (logoutAt != null) {
-                throw new AuthorizationFailedException(
-                        "ATHR-002", "User is signed out.Sign in first to get all questions");
-            } else {
-                return questionRepo.findAll();
+    public KeysetPage<QuestionSummary> getAllQuestions(final String authorization, final String cursor,
+                                                       final Integer limit)
+            throws AuthorizationFailedException, InvalidCursorException {
+        authorizationService.authorize(authorization, "User is signed out.Sign in first to get all questions");
+        final int afterId = KeysetPage.decodeCursor(cursor);
+        final int pageSize = KeysetPage.limit(limit, defaultPageSize, maxPageSize);
+        final List<QuestionSummary> rows = questionRepo.findQuestionsAfter(afterId, PageRequest.of(0, pageSize + 1));
+        return KeysetPage.of(rows, pageSize, QuestionSummary::getId);
+    }
+
+    /**
+     * Business logic to authorize user who wants to search questions and return a page of the questions
+     * whose content contains every search word, most relevant first
+     *
+     * @param authorization
+     * @param terms : words to search for
+     * @param cursor : cursor of the page, null for the first page
+     * @param limit : page size, null for the default page size
+     * @return page of matching questions
+     * @throws AuthorizationFailedException
+     * @throws InvalidCursorException
+     */
+    public OffsetPage<QuestionSummary> searchQuestions(final String authorization, final String terms,
+                                                       final String cursor, final Integer limit)
+            throws AuthorizationFailedException, InvalidCursorException {
+        authorizationService.authorize(authorization, "User is signed out.Sign in first to search questions");
+        final int offset = OffsetPage.decodeCursor(cursor);
+        final int pageSize = KeysetPage.limit(limit, defaultPageSize, maxPageSize);
+        if (terms == null || terms.trim().isEmpty() || offset > maxSearchResults) {
+            return OffsetPage.of(Collections.<QuestionSummary>emptyList(), offset, pageSize, maxSearchResults);
+        }
+        final List<Integer> ids = questionRepo.searchQuestionIds(terms, offset, pageSize + 1);
+        if (ids.isEmpty()) {
+            return OffsetPage.of(Collections.<QuestionSummary>emptyList(), offset, pageSize, maxSearchResults);
+        }
+        // The summaries come back in id order, put them back in the order of relevance
+        final Map<Integer, QuestionSummary> byId = new HashMap<>();
+        for (QuestionSummary question : questionRepo.findQuestionSummariesByIds(ids)) {
+            byId.put(question.getId(), question);
+        }
+        final List<QuestionSummary> rows = new ArrayList<>(ids.size());
+        for (Integer id : ids) {
+            final QuestionSummary question = byId.get(id);
+            if (question != null) {
+                rows.add(question);
             }
         }
+        return OffsetPage.of(rows, offset, pageSize, maxSearchResults);
+    }
+
+    /**
+     * Business logic to authorize user who is typing a question and suggest the existing questions starting
+     * with what was typed
+     *
+     * @param authorization
+     * @param prefix : start of the question typed so far
+     * @param limit : maximum number of suggestions, null for the default
+     * @return suggested questions
+     * @throws AuthorizationFailedException
+     */
+    public List<QuestionSuggestions.Suggestion> suggestQuestions(final String authorization, final String prefix,
+                                                                 final Integer limit)
+            throws AuthorizationFailedException {
+        authorizationService.authorize(authorization, "User is signed out.Sign in first to get suggestions");
+        return questionSuggestions.suggest(prefix, KeysetPage.limit(limit, defaultSuggestions, maxSuggestions));
+    }
+
+    /**
+     * Business logic to authorize user who wants to see the latest questions and return them
+     *
+     * @param authorization
+     * @param limit : maximum number of questions, null for the default
+     * @return latest questions, latest first
+     * @throws AuthorizationFailedException
+     */
+    public List<LatestQuestions.Question> getLatestQuestions(final String authorization, final Integer limit)
+            throws AuthorizationFailedException {
+        authorizationService.authorize(authorization, "User is signed out.Sign in first to get the latest questions");
+        return latestQuestions.latest(KeysetPage.limit(limit, defaultLatest, maxLatest));
+    }
+
+    /**
+     * Business logic to authorize user who wants to see the questions related to a question and return
+     * them
+     *
+     * @param authorization
+     * @param questionUuid
+     * @return related questions, most related first
+     * @throws AuthorizationFailedException
+     * @throws InvalidQuestionException
+     */
+    public List<RelatedQuestion> getRelatedQuestions(final String authorization, final String questionUuid)
+            throws AuthorizationFailedException, InvalidQuestionException {
+        authorizationService.authorize(authorization, "User is signed out.Sign in first to get related questions");
+        QuestionDetail question = questionCache.findByUuid(questionUuid);
+        if (question == null) {
+            throw new InvalidQuestionException(
+                    "QUES-001", "The question with entered uuid whose related questions are to be seen does not exist");
+        }
+        return questionRepo.findRelatedQuestions(question.getId());
+    }
+
+    /**
+     * Business logic to authorize user who wants to stream the list of all questions
+     *
+     * @param authorization
+     * @throws AuthorizationFailedException
+     */
+    public void authorizeQuestionListing(final String authorization) throws AuthorizationFailedException {
+        authorizationService.authorize(authorization, "User is signed out.Sign in first to get all questions");
+    }
+
+    /**
+     * Passes every question to the action in the order they were posted. Questions are read from a
+     * database cursor as projections, which are not kept by the persistence context, so memory use does
+     * not grow with the number of questions.
+     *
+     * @param action : called for each question
+     */
+    @Transactional(readOnly = true)
+    public void forEachQuestion(final Consumer<QuestionSummary> action) {
+        try (Stream<QuestionSummary> questions = questionRepo.streamAllQuestions()) {
+            questions.forEach(action);
+        }
     }
 
     /**
@@ -99,63 +270,63 @@ public class QuestionService {
     public QuestionEntity editQuestionContent(
             final String authorization, String questionUuid, String content)
             throws AuthorizationFailedException, InvalidQuestionException {
-        UserAuthEntity userAuthEntity = userAuthRepo.findByAccessToken(authorization);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else {
-            // Retrieve logout_at attribute value of UserAuthEntity to check if user has already signed
-            // out
-            ZonedDateTime logoutAt = userAuthEntity.getLogoutAt();
-            if (logoutAt != null) {
-                throw new AuthorizationFailedException(
-                        "ATHR-002", "User is signed out.Sign in first to edit the question");
-            } else {
-                // Get question by questionUuid passed by user
-                QuestionEntity question = questionRepo.findQuestionByUuid(questionUuid);
-                if (question == null) {
-                    throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
-                } else {
-                    // Compare the userId to check if the user trying to edit question is the owner of the
-                    // question
-                    Integer questionEditorId = userAuthEntity.getUserEntity().getId();
-                    Integer questionOwnerId = question.getUserEntity().getId();
-                    if (!questionEditorId.equals(questionOwnerId)) {
-                        throw new AuthorizationFailedException(
-                                "ATHR-003", "Only the question owner can edit the question");
-                    } else {
-                        question.setContent(content);
-                        return questionRepo.save(question);
-                    }
-                }
-            }
+        UserAuthEntity userAuthEntity = authorizationService.authorize(
+                authorization, "User is signed out.Sign in first to edit the question");
+        // Get question by questionUuid passed by user
+        QuestionDetail question = questionCache.findByUuid(questionUuid);
+        if (question == null) {
+            throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
+        }
+        // Compare the userId to check if the user trying to edit question is the owner of the
+        // question
+        Integer questionEditorId = userAuthEntity.getUserEntity().getId();
+        Integer questionOwnerId = question.getUserId();
+        if (!questionEditorId.equals(questionOwnerId)) {
+            throw new AuthorizationFailedException(
+                    "ATHR-003", "Only the question owner can edit the question");
         }
+        QuestionEntity questionEntity = questionRepo.findById(question.getId()).orElseThrow(
+                () -> new InvalidQuestionException("QUES-001", "Entered question uuid does not exist"));
+        questionEntity.setContent(content);
+        questionCache.invalidate(questionUuid);
+        questionSuggestions.put(questionEntity.getId(), questionUuid, content);
+        similarQuestions.put(questionEntity.getId(), content);
+        latestQuestions.edit(questionEntity.getId(), questionUuid, content, questionEntity.getDate());
+        relatedQuestionsJob.questionChanged(questionEntity.getId(), content);
+        userQuestionsCache.invalidate(question.getUserUuid());
+        return questionRepo.save(questionEntity);
     }
 
     /**
-     * Service method to get all questions posted by a user
+     * Service method to get the questions posted by a user, or a page of them if a cursor or a limit is
+     * given. The user's questions are read through UserQuestionsCache and paged in memory.
      *
      * @param userId
      * @param accessToken
-     * @return list of all posted questions by user
+     * @param cursor : cursor of the page, null for the first page
+     * @param limit : page size, null for the default page size
+     * @return all the questions posted by the user if neither cursor nor limit is given, otherwise a page of
+     * them, in the order they were posted
      * @throws AuthorizationFailedException
      * @throws UserNotFoundException
+     * @throws InvalidCursorException
      */
-    public List<QuestionEntity> getAllQuestionsByUser(final String userId, final String accessToken)
-            throws AuthorizationFailedException, UserNotFoundException {
-        UserAuthEntity userAuthEntity = userAuthRepo.findByAccessToken(accessToken);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException(
-                    "ATHR-002",
-                    "User is signed out.Sign in first to get all questions posted by a specific user");
-        }
-        UserEntity user = userRepo.findByUuid(userId);
-        if (user == null) {
+    public KeysetPage<QuestionSummary> getAllQuestionsByUser(final String userId, final String accessToken,
+                                                             final String cursor, final Integer limit)
+            throws AuthorizationFailedException, UserNotFoundException, InvalidCursorException {
+        authorizationService.authorize(
+                accessToken, "User is signed out.Sign in first to get all questions posted by a specific user");
+        final int afterId = KeysetPage.decodeCursor(cursor);
+        final int pageSize = KeysetPage.limit(limit, defaultPageSize, maxPageSize);
+        final List<QuestionSummary> questions = userQuestionsCache.findByUserUuid(userId);
+        if (questions == null) {
             throw new UserNotFoundException(
                     "USR-001", "User with entered uuid whose question details are to be seen does not exist");
         }
-        return questionRepo.findAllQuestionByUserEntity(user);
+        if ((cursor == null || cursor.isEmpty()) && limit == null) {
+            return KeysetPage.all(questions);
+        }
+        return KeysetPage.after(questions, afterId, pageSize, QuestionSummary::getId);
     }
 
     /**
@@ -170,24 +341,27 @@ public class QuestionService {
     @Transactional(propagation = Propagation.REQUIRED)
     public QuestionEntity deleteQuestion(final String accessToken, final String questionId)
             throws AuthorizationFailedException, InvalidQuestionException {
-        UserAuthEntity userAuthEntity = userAuthRepo.findByAccessToken(accessToken);
-        if (userAuthEntity == null) {
-            throw new AuthorizationFailedException("ATHR-001", "User has not signed in");
-        } else if (userAuthEntity.getLogoutAt() != null) {
-            throw new AuthorizationFailedException(
-                    "ATHR-002", "User is signed out.Sign in first to delete the question");
-        }
-        QuestionEntity questionEntity = questionRepo.findQuestionByUuid(questionId);
-        if (questionEntity == null) {
+        UserAuthEntity userAuthEntity = authorizationService.authorize(
+                accessToken, "User is signed out.Sign in first to delete the question");
+        QuestionDetail question = questionCache.findByUuid(questionId);
+        if (question == null) {
             throw new InvalidQuestionException("QUES-001", "Entered question uuid does not exist");
         }
-        if (!questionEntity.getUserEntity().getUuid().equals(userAuthEntity.getUserEntity().getUuid())
+        if (!question.getUserUuid().equals(userAuthEntity.getUserEntity().getUuid())
                 && !userAuthEntity.getUserEntity().getRole().equals("admin")) {
             throw new AuthorizationFailedException(
                     "ATHR-003", "Only the question owner or admin can delete the question");
         }
+        QuestionEntity questionEntity = questionRepo.findById(question.getId()).orElseThrow(
+                () -> new InvalidQuestionException("QUES-001", "Entered question uuid does not exist"));
 
         questionRepo.delete(questionEntity);
+        questionCache.invalidate(questionId);
+        questionSuggestions.remove(questionEntity.getId());
+        similarQuestions.remove(questionEntity.getId());
+        latestQuestions.remove(questionEntity.getId());
+        relatedQuestionsJob.questionDeleted(questionEntity.getId());
+        userQuestionsCache.invalidate(question.getUserUuid());
         return questionEntity;
     }
 }
@@ -0,0 +1,260 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.common.TermIndex;
+import com.upgrad.quora.service.common.TransactionHooks;
+import com.upgrad.quora.service.common.Words;
+import com.upgrad.quora.service.dao.QuestionRepository;
+import com.upgrad.quora.service.dao.QuestionSummary;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Background job computing the related questions of every question into QUESTION_RELATED, so that they are
+ * read with a single lookup. Questions are related by the words of their content they have in common, rare
+ * words counting more (see TermIndex). All questions are recomputed in parallel on a fork/join pool when
+ * the application is ready and then periodically. In between, the questions created, edited or deleted
+ * through this instance are applied to the index after their transaction commits, and the related
+ * questions of the changed questions and of their neighbours are recomputed; the neighbours of a changed
+ * question are the ones most related to it, as the score is symmetric.
+ */
+@Component
+public class RelatedQuestionsJob {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RelatedQuestionsJob.class);
+
+    /** Questions handed to one fork/join task before it splits its range in two. */
+    private static final int QUESTIONS_PER_TASK = 256;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.related-questions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.related-questions.limit:10}")
+    private int limit;
+
+    @Value("${quora.related-questions.min-score:0.1}")
+    private double minScore;
+
+    @Value("${quora.related-questions.max-term-share:0.01}")
+    private double maxTermShare;
+
+    @Value("${quora.related-questions.batch-size:1000}")
+    private int batchSize;
+
+    /** Threads computing the related questions, 0 for one per processor. */
+    @Value("${quora.related-questions.parallelism:0}")
+    private int parallelism;
+
+    /** Index of the last recomputation, kept up to date with the changes; guarded by this. */
+    private TermIndex index;
+
+    /** Changes committed and not yet applied to the index, the content of a deleted question is null. */
+    private final Queue<Map.Entry<Integer, String>> changes = new ConcurrentLinkedQueue<>();
+
+    private final ThreadLocal<TermIndex.Scratch> scratches = ThreadLocal.withInitial(TermIndex.Scratch::new);
+
+    private ForkJoinPool pool;
+
+    private Counter updated;
+
+    private Timer recomputeTimer;
+
+    @PostConstruct
+    public void init() {
+        pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        updated = meterRegistry.counter("quora.questions.related.updated");
+        recomputeTimer = meterRegistry.timer("quora.questions.related.recompute");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Recompute the related questions of a created or edited question once the surrounding transaction
+     * commits.
+     */
+    public void questionChanged(final Integer questionId, final String content) {
+        TransactionHooks.afterCommit(() -> changes.add(new AbstractMap.SimpleImmutableEntry<>(questionId, content)));
+    }
+
+    /**
+     * Recompute the related questions of the neighbours of a deleted question once the surrounding
+     * transaction commits. Its own related questions are deleted with it.
+     */
+    public void questionDeleted(final Integer questionId) {
+        TransactionHooks.afterCommit(() -> changes.add(new AbstractMap.SimpleImmutableEntry<>(questionId, null)));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        recomputeAll();
+    }
+
+    /**
+     * Rebuild the index from QUESTION and recompute the related questions of every question.
+     */
+    @Scheduled(initialDelayString = "${quora.related-questions.interval-ms:86400000}",
+            fixedDelayString = "${quora.related-questions.interval-ms:86400000}")
+    public synchronized void recomputeAll() {
+        if (!enabled) {
+            return;
+        }
+        final long started = System.nanoTime();
+        final TermIndex next = new TermIndex(maxTermShare);
+        final List<Integer> questionIds = new ArrayList<>();
+        transactionTemplate.execute(status -> {
+            try (Stream<QuestionSummary> questions = questionRepository.streamAllQuestions()) {
+                questions.forEach(question -> {
+                    next.put(question.getId(), Words.split(question.getContent()));
+                    questionIds.add(question.getId());
+                });
+            }
+            return null;
+        });
+        next.updateNorms();
+        final long loaded = System.nanoTime();
+        final TermIndex.Related[] related = new TermIndex.Related[questionIds.size()];
+        pool.invoke(new RelatedTask(next, questionIds, related, 0, related.length));
+        final long computed = System.nanoTime();
+        long written = 0;
+        for (int from = 0; from < related.length; from += batchSize) {
+            final Map<Integer, TermIndex.Related> batch = new LinkedHashMap<>();
+            for (int i = from; i < Math.min(from + batchSize, related.length); i++) {
+                batch.put(questionIds.get(i), related[i]);
+            }
+            written += save(batch);
+        }
+        index = next;
+        final long elapsed = System.nanoTime() - started;
+        recomputeTimer.record(elapsed, TimeUnit.NANOSECONDS);
+        LOG.info("Related questions of {} questions recomputed in {} ms (load {} ms, compute {} ms), {} changed;"
+                        + " index of about {} KB", questionIds.size(), TimeUnit.NANOSECONDS.toMillis(elapsed),
+                TimeUnit.NANOSECONDS.toMillis(loaded - started), TimeUnit.NANOSECONDS.toMillis(computed - loaded),
+                written, next.getEstimatedBytes() / 1024);
+    }
+
+    /**
+     * Apply the committed changes to the index and recompute the related questions they affect.
+     */
+    @Scheduled(fixedDelayString = "${quora.related-questions.refresh-interval-ms:10000}")
+    public synchronized void applyChanges() {
+        if (index == null || changes.isEmpty()) {
+            return;
+        }
+        final TermIndex.Scratch scratch = scratches.get();
+        final Set<Integer> affected = new HashSet<>();
+        Map.Entry<Integer, String> change;
+        while ((change = changes.poll()) != null) {
+            final Integer questionId = change.getKey();
+            addIds(affected, index.related(questionId, limit, minScore, scratch));
+            if (change.getValue() == null) {
+                index.remove(questionId);
+            } else {
+                index.put(questionId, Words.split(change.getValue()));
+                affected.add(questionId);
+                addIds(affected, index.related(questionId, limit, minScore, scratch));
+            }
+        }
+        final Map<Integer, TermIndex.Related> batch = new LinkedHashMap<>();
+        for (Integer questionId : affected) {
+            final TermIndex.Related related = index.related(questionId, limit, minScore, scratch);
+            if (related != null) {
+                batch.put(questionId, related);
+            }
+        }
+        save(batch);
+    }
+
+    private int save(final Map<Integer, TermIndex.Related> batch) {
+        try {
+            final Integer count = transactionTemplate.execute(status -> questionRepository.saveRelatedQuestions(batch));
+            updated.increment(count);
+            return count;
+        } catch (DataIntegrityViolationException e) {
+            // A question of the batch was deleted while the batch was written; the next recomputation
+            // writes the others
+            LOG.warn("Related questions of {} questions not saved: {}", batch.size(), e.getMessage());
+            return 0;
+        }
+    }
+
+    private static void addIds(final Set<Integer> ids, final TermIndex.Related related) {
+        if (related != null) {
+            for (int id : related.getIds()) {
+                ids.add(id);
+            }
+        }
+    }
+
+    /**
+     * Computes the related questions of a range of the questions, splitting it across the pool.
+     */
+    private final class RelatedTask extends RecursiveAction {
+
+        private final TermIndex termIndex;
+        private final List<Integer> questionIds;
+        private final TermIndex.Related[] related;
+        private final int from;
+        private final int to;
+
+        RelatedTask(final TermIndex termIndex, final List<Integer> questionIds, final TermIndex.Related[] related,
+                    final int from, final int to) {
+            this.termIndex = termIndex;
+            this.questionIds = questionIds;
+            this.related = related;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= QUESTIONS_PER_TASK) {
+                final TermIndex.Scratch scratch = scratches.get();
+                for (int i = from; i < to; i++) {
+                    related[i] = termIndex.related(questionIds.get(i), limit, minScore, scratch);
+                }
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new RelatedTask(termIndex, questionIds, related, from, middle),
+                        new RelatedTask(termIndex, questionIds, related, middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.upgrad.quora.service.business;
+
+import com.upgrad.quora.service.dao.UserAuthRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Background job deleting the USER_AUTH rows of sessions that expired or were signed out more than the
+ * grace period ago. Rows are deleted in small batches, each in its own transaction, with a pause between
+ * batches so that the sweep does not compete with sign-ins for locks and I/O.
+ */
+@Component
+public class SessionSweeper {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SessionSweeper.class);
+
+    @Autowired
+    private UserAuthRepository userAuthRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.auth.session-sweeper.enabled:true}")
+    private boolean enabled;
+
+    /** Sessions are kept this long after they ended, so a signed out token is still reported as such. */
+    @Value("${quora.auth.session-sweeper.grace-hours:24}")
+    private long graceHours;
+
+    @Value("${quora.auth.session-sweeper.batch-size:500}")
+    private int batchSize;
+
+    @Value("${quora.auth.session-sweeper.max-batches:100}")
+    private int maxBatches;
+
+    @Value("${quora.auth.session-sweeper.pause-ms:100}")
+    private long pauseMillis;
+
+    private Counter reclaimed;
+
+    private Timer sweepTimer;
+
+    @PostConstruct
+    public void init() {
+        reclaimed = meterRegistry.counter("quora.auth.sessions.reclaimed");
+        sweepTimer = meterRegistry.timer("quora.auth.sessions.sweep");
+    }
+
+    /**
+     * Deletes ended sessions until none are left or the batch limit of a run is reached.
+     */
+    @Scheduled(initialDelayString = "${quora.auth.session-sweeper.interval-ms:900000}",
+            fixedDelayString = "${quora.auth.session-sweeper.interval-ms:900000}")
+    public void sweep() {
+        if (!enabled) {
+            return;
+        }
+        final long started = System.nanoTime();
+        final LocalDateTime cutoff = LocalDateTime.now().minusHours(graceHours);
+        long deleted = 0;
+        try {
+            for (int batch = 0; batch < maxBatches; batch++) {
+                final Integer count = transactionTemplate.execute(
+                        status -> userAuthRepository.deleteEndedSessions(cutoff, batchSize));
+                deleted += count;
+                reclaimed.increment(count);
+                if (count < batchSize) {
+                    break;
+                }
+                TimeUnit.MILLISECONDS.sleep(pauseMillis);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            final long elapsed = System.nanoTime() - started;
+            sweepTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            if (deleted > 0) {
+                LOG.info("Swept {} ended sessions in {} ms", deleted, TimeUnit.NANOSECONDS.toMillis(elapsed));
+            }
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.upgrad.quora.service.business;
+
+import com.auth0.jwt.interfaces.DecodedJWT;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * In-memory list of access tokens that are still cryptographically valid but must no longer be accepted,
+ * because their session was signed out or their user was deleted. Entries are kept only as long as the
+ * tokens they revoke could still pass verification.
+ */
+@Component
+public class TokenRevocationList {
+
+    public enum Revocation {
+        NONE,
+        SIGNED_OUT,
+        USER_DELETED
+    }
+
+    /** JWT id (session uuid) of signed out sessions mapped to the expiry of their token. */
+    private final Map<String, Long> signedOutSessions = new ConcurrentHashMap<>();
+
+    /** Uuid of deleted users mapped to the time until which their tokens could still be valid. */
+    private final Map<String, Long> deletedUsers = new ConcurrentHashMap<>();
+
+    @Value("${quora.auth.token-validity-hours:8}")
+    private long tokenValidityHours;
+
+    /**
+     * Revoke the token of a signed out session
+     *
+     * @param sessionUuid : uuid of the session, which is the JWT id of its token
+     * @param expiresAt   : expiry of the session
+     */
+    public void revokeSession(final String sessionUuid, final ZonedDateTime expiresAt) {
+        signedOutSessions.put(sessionUuid, expiresAt.toInstant().toEpochMilli());
+    }
+
+    /**
+     * Revoke every token issued to a user
+     *
+     * @param userUuid : uuid of the deleted user
+     */
+    public void revokeUser(final String userUuid) {
+        deletedUsers.put(userUuid, System.currentTimeMillis() + TimeUnit.HOURS.toMillis(tokenValidityHours));
+    }
+
+    /**
+     * @param jwt : verified token
+     * @return why the token is revoked, or NONE
+     */
+    public Revocation check(final DecodedJWT jwt) {
+        if (jwt.getAudience() != null) {
+            for (String userUuid : jwt.getAudience()) {
+                if (deletedUsers.containsKey(userUuid)) {
+                    return Revocation.USER_DELETED;
+                }
+            }
+        }
+        if (jwt.getId() != null && signedOutSessions.containsKey(jwt.getId())) {
+            return Revocation.SIGNED_OUT;
+        }
+        return Revocation.NONE;
+    }
+
+    /**
+     * Drop the entries whose tokens have expired anyway.
+     */
+    @Scheduled(fixedDelayString = "${quora.auth.revocation-list.prune-interval-ms:600000}")
+    public void prune() {
+        final long now = System.currentTimeMillis();
+        signedOutSessions.values().removeIf(expiresAt -> expiresAt < now);
+        deletedUsers.values().removeIf(validUntil -> validUntil < now);
+    }
+}
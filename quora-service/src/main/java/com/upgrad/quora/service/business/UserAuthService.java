@@ -1,23 +1,38 @@
 package com.upgrad.quora.service.business;
 
+import com.upgrad.quora.service.cache.AccessTokenCache;
+import com.upgrad.quora.service.cache.AccessTokenFilter;
+import com.upgrad.quora.service.cache.UserIdentityFilter;
+import com.upgrad.quora.service.common.TokenDigest;
 import com.upgrad.quora.service.dao.UserAuthRepository;
 import com.upgrad.quora.service.dao.UserRepository;
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import com.upgrad.quora.service.entity.UserEntity;
 import com.upgrad.quora.service.exception.AuthenticationFailedException;
+import com.upgrad.quora.service.exception.ServiceUnavailableException;
 import com.upgrad.quora.service.exception.SignOutRestrictedException;
 import com.upgrad.quora.service.exception.SignUpRestrictedException;
+import org.hibernate.exception.ConstraintViolationException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.ZonedDateTime;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class UserAuthService {
 
+    /** Names Postgres gives the unique constraints on USERS.userName and USERS.email. */
+    private static final String USER_NAME_CONSTRAINT = "users_username_key";
+    private static final String EMAIL_CONSTRAINT = "users_email_key";
+
     @Autowired
     private UserRepository userRepository;
 
@@ -27,85 +42,179 @@ public class UserAuthService {
     @Autowired
     private PasswordCryptographyProvider passwordCryptographyProvider;
 
+    @Autowired
+    private PasswordHashingExecutor passwordHashingExecutor;
+
+    @Autowired
+    private AuthDatabaseExecutor authDatabaseExecutor;
+
+    @Autowired
+    private UserIdentityFilter userIdentityFilter;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private AccessTokenCache accessTokenCache;
+
+    @Autowired
+    private AccessTokenFilter accessTokenFilter;
+
+    @Autowired
+    private JwtTokenProvider jwtTokenProvider;
+
+    @Autowired
+    private TokenRevocationList tokenRevocationList;
+
+    @Value("${quora.auth.token-validity-hours:8}")
+    private long tokenValidityHours;
+
     /**
+     * The password is hashed on the PasswordHashingExecutor and the user is created on the AuthDatabaseExecutor
+     * with a single insert,
+     * relying on the unique constraints on the username and email. The database is only checked before
+     * hashing if the UserIdentityFilter reports that the username or email might already be taken.
      *
      * @param userEntity
-     * @return uuid of created user
+     * @return future completed with the uuid of created user, or failed with SignUpRestrictedException
+     * if the username or email was taken concurrently
      * @throws SignUpRestrictedException
+     * @throws ServiceUnavailableException : if the password hashing queue is full
      */
-    public String signup(UserEntity userEntity) throws SignUpRestrictedException {
-        if (isUserNameInUse(userEntity.getUserName())) {
-            throw new SignUpRestrictedException(
-                    "SGR-001", "Try any other Username, this Username has already been taken");
-        }
-
-        if (isEmailInUse(userEntity.getEmail())) {
-            throw new SignUpRestrictedException(
-                    "SGR-002", "This user has already been registered, try with any other emailId");
+    public CompletableFuture<String> signup(UserEntity userEntity)
+            throws SignUpRestrictedException, ServiceUnavailableException {
+        if (userIdentityFilter.mightBeTaken(userEntity.getUserName(), userEntity.getEmail())) {
+            checkUserNameAndEmail(userEntity.getUserName(), userEntity.getEmail());
         }
         // Assign a UUID to the user that is being created.
         userEntity.setUuid(UUID.randomUUID().toString());
         // Assign encrypted password and salt to the user that is being created.
-        String[] encryptedText = passwordCryptographyProvider.encrypt(userEntity.getPassword());
-        userEntity.setSalt(encryptedText[0]);
-        userEntity.setPassword(encryptedText[1]);
-        UserEntity createdUserEntity = userRepository.save(userEntity);
-        return createdUserEntity.getUuid();
+        final String password = userEntity.getPassword();
+        return passwordHashingExecutor.submit("sign-up", () -> passwordCryptographyProvider.encrypt(password))
+                .thenApplyAsync(encryptedText -> {
+                    userEntity.setSalt(encryptedText[0]);
+                    userEntity.setPassword(encryptedText[1]);
+                    final UserEntity createdUserEntity;
+                    try {
+                        createdUserEntity = userRepository.saveAndFlush(userEntity);
+                    } catch (DataIntegrityViolationException e) {
+                        throw new CompletionException(toSignUpRestrictedException(e));
+                    }
+                    userIdentityFilter.put(createdUserEntity.getUserName(), createdUserEntity.getEmail());
+                    return createdUserEntity.getUuid();
+                }, authDatabaseExecutor);
     }
 
     /**
-     * checks whether the username exist in the database
+     * checks with a single query whether the username or email exist in the database
      * @param userName
-     * @return boolean
+     * @param email
+     * @throws SignUpRestrictedException : SGR-001 if the username is taken, SGR-002 if the email is taken
      */
-    private boolean isUserNameInUse(final String userName) {
-        return null!= userRepository.findByUserName(userName);
+    private void checkUserNameAndEmail(final String userName, final String email) throws SignUpRestrictedException {
+        boolean emailInUse = false;
+        for (Object[] existing : userRepository.findUserNamesAndEmails(userName, email)) {
+            if (userName.equals(existing[0])) {
+                throw userNameInUse();
+            }
+            emailInUse = true;
+        }
+        if (emailInUse) {
+            throw emailInUse();
+        }
     }
 
     /**
-     * checks whether the email exist in the database
-     * @param email
-     * @return boolean
+     * translates the violation of the unique constraint on the username or email
+     * @param e : exception thrown by the insert
+     * @return SignUpRestrictedException matching the violated constraint
      */
-    private boolean isEmailInUse(final String email) {
-        return null!= userRepository.findByEmail(email);
+    private SignUpRestrictedException toSignUpRestrictedException(final DataIntegrityViolationException e) {
+        final Throwable cause = e.getCause();
+        final String constraintName = cause instanceof ConstraintViolationException
+                ? ((ConstraintViolationException) cause).getConstraintName() : null;
+        if (USER_NAME_CONSTRAINT.equalsIgnoreCase(constraintName)) {
+            return userNameInUse();
+        }
+        if (EMAIL_CONSTRAINT.equalsIgnoreCase(constraintName)) {
+            return emailInUse();
+        }
+        throw e;
+    }
+
+    private static SignUpRestrictedException userNameInUse() {
+        return new SignUpRestrictedException(
+                "SGR-001", "Try any other Username, this Username has already been taken");
+    }
+
+    private static SignUpRestrictedException emailInUse() {
+        return new SignUpRestrictedException(
+                "SGR-002", "This user has already been registered, try with any other emailId");
     }
 
     /**
-     * the signin user method
+     * the signin user method. The password is verified on the PasswordHashingExecutor and the session is
+     * created in its own transaction on the AuthDatabaseExecutor once the password matched. A password hashed with outdated
+     * parameters is rehashed and saved along with the session, on the user as read again from the database.
      *
      * @param username : Username that you want to signin
      * @param password : Password of user
-     * @throws AuthenticationFailedException : If user not found or invalid password
-     * @return UserAuthEntity access-token and singin response.
+     * @throws AuthenticationFailedException : If user not found, the future fails with it if the password is invalid
+     * @throws ServiceUnavailableException : if the password hashing queue is full
+     * @return future completed with the UserAuthEntity access-token and singin response.
      */
-    @Transactional(propagation = Propagation.REQUIRED)
-    public UserAuthEntity signIn(final String username, final String password)
-            throws AuthenticationFailedException {
+    public CompletableFuture<UserAuthEntity> signIn(final String username, final String password)
+            throws AuthenticationFailedException, ServiceUnavailableException {
 
         UserEntity userEntity = userRepository.findByUserName(username);
         if (userEntity == null) {
             throw new AuthenticationFailedException("ATH-001", "This username does not exist");
         }
-        final String encryptedPassword =
-                passwordCryptographyProvider.encrypt(password, userEntity.getSalt());
-        if (!encryptedPassword.equals(userEntity.getPassword())) {
-            throw new AuthenticationFailedException("ATH-002", "Password failed");
+        final String salt = userEntity.getSalt();
+        final String storedPassword = userEntity.getPassword();
+        return passwordHashingExecutor.submit("sign-in", () -> {
+            if (!passwordCryptographyProvider.matches(password, salt, storedPassword)) {
+                throw new CompletionException(new AuthenticationFailedException("ATH-002", "Password failed"));
+            }
+            // Rehash with the current parameters while the raw password is at hand.
+            return passwordCryptographyProvider.needsRehash(storedPassword)
+                    ? passwordCryptographyProvider.encrypt(password) : null;
+        }).thenApplyAsync(rehashed -> transactionTemplate.execute(status -> {
+            if (rehashed != null) {
+                saveRehashedPassword(userEntity.getId(), storedPassword, rehashed);
+            }
+            return createSession(userEntity);
+        }), authDatabaseExecutor);
+    }
+
+    /**
+     * Replaces the password of the user with its rehash, unless the password was changed after it was verified.
+     *
+     * @param userId           : id of the user
+     * @param verifiedPassword : stored password the raw password was verified against
+     * @param rehashed         : [0] encoded salt [1] versioned hashed password
+     */
+    private void saveRehashedPassword(final Integer userId, final String verifiedPassword, final String[] rehashed) {
+        final UserEntity current = userRepository.findByIdForUpdate(userId);
+        if (current != null && verifiedPassword.equals(current.getPassword())) {
+            current.setSalt(rehashed[0]);
+            current.setPassword(rehashed[1]);
         }
+    }
 
-        JwtTokenProvider jwtTokenProvider = new JwtTokenProvider(encryptedPassword);
+    private UserAuthEntity createSession(final UserEntity userEntity) {
         UserAuthEntity userAuthEntity = new UserAuthEntity();
         userAuthEntity.setUuid(UUID.randomUUID().toString());
         userAuthEntity.setUserEntity(userEntity);
         final ZonedDateTime now = ZonedDateTime.now();
-        final ZonedDateTime expiresAt = now.plusHours(8);
-        userAuthEntity.setAccessToken(
-                jwtTokenProvider.generateToken(userEntity.getUuid(), now, expiresAt));
+        final ZonedDateTime expiresAt = now.plusHours(tokenValidityHours);
+        userAuthEntity.setAccessToken(jwtTokenProvider.generateToken(
+                userEntity.getUuid(), userAuthEntity.getUuid(), now, expiresAt));
         userAuthEntity.setLoginAt(now);
         userAuthEntity.setExpiresAt(expiresAt);
 
         userAuthRepository.save(userAuthEntity);
-        userRepository.save(userEntity);
+        accessTokenFilter.put(userAuthEntity.getAccessToken());
 
         return userAuthEntity;
     }
@@ -118,12 +227,14 @@ public class UserAuthService {
      */
     @Transactional(propagation = Propagation.REQUIRED)
     public UserEntity signOut(final String accessToken) throws SignOutRestrictedException {
-        UserAuthEntity userAuthEntity = userAuthRepository.findByAccessToken(accessToken);
+        UserAuthEntity userAuthEntity = userAuthRepository.findByAccessTokenDigest(TokenDigest.sha256(accessToken));
         if (userAuthEntity == null) {
             throw new SignOutRestrictedException("SGR-001", "User is not Signed in");
         }
         userAuthEntity.setLogoutAt(ZonedDateTime.now());
         userAuthRepository.save(userAuthEntity);
+        accessTokenCache.invalidate(accessToken);
+        tokenRevocationList.revokeSession(userAuthEntity.getUuid(), userAuthEntity.getExpiresAt());
         return userAuthEntity.getUserEntity();
     }
 
@@ -0,0 +1,123 @@
+package com.upgrad.quora.service.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.upgrad.quora.service.common.TokenDigest;
+import com.upgrad.quora.service.common.TransactionHooks;
+import com.upgrad.quora.service.dao.UserAuthRepository;
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-process cache of the sessions resolved from access tokens. It sits in front of
+ * UserAuthRepository.findByAccessTokenDigest so that authenticated requests do not query USER_AUTH every time.
+ * An entry never outlives the expires_at of its session.
+ */
+@Component
+public class AccessTokenCache {
+
+    @Autowired
+    private UserAuthRepository userAuthRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.auth.token-cache.maximum-size:10000}")
+    private long maximumSize;
+
+    @Value("${quora.auth.token-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private Cache<String, UserAuthEntity> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfter(new SessionExpiry(Duration.ofSeconds(ttlSeconds)))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "accessTokenCache");
+    }
+
+    /**
+     * Returns the session of the access token, loading it from the database on a cache miss.
+     *
+     * @param accessToken : access-token sent by the client
+     * @return UserAuthEntity or null if the access token does not exist
+     */
+    public UserAuthEntity findByAccessToken(final String accessToken) {
+        UserAuthEntity userAuthEntity = cache.getIfPresent(accessToken);
+        if (userAuthEntity == null) {
+            userAuthEntity = userAuthRepository.findByAccessTokenDigest(TokenDigest.sha256(accessToken));
+            if (userAuthEntity != null) {
+                cache.put(accessToken, userAuthEntity);
+            }
+        }
+        return userAuthEntity;
+    }
+
+    /**
+     * Removes the session of the access token, now and again after the surrounding transaction commits.
+     *
+     * @param accessToken : access-token of the session
+     */
+    public void invalidate(final String accessToken) {
+        TransactionHooks.nowAndAfterCommit(() -> cache.invalidate(accessToken));
+    }
+
+    /**
+     * Removes every cached session of a user, now and again after the surrounding transaction commits.
+     *
+     * @param userId : id of the user
+     */
+    public void invalidateUser(final Integer userId) {
+        TransactionHooks.nowAndAfterCommit(() -> cache.asMap().values()
+                .removeIf(session -> userId.equals(session.getUserEntity().getId())));
+    }
+
+    /**
+     * Expires an entry after the configured ttl or when the session itself expires, whichever is earlier.
+     */
+    private static class SessionExpiry implements Expiry<String, UserAuthEntity> {
+
+        private final long ttlNanos;
+
+        SessionExpiry(final Duration ttl) {
+            this.ttlNanos = ttl.toNanos();
+        }
+
+        @Override
+        public long expireAfterCreate(String accessToken, UserAuthEntity session, long currentTime) {
+            final ZonedDateTime expiresAt = session.getExpiresAt();
+            if (expiresAt == null) {
+                return ttlNanos;
+            }
+            final long untilExpiry = TimeUnit.MILLISECONDS.toNanos(
+                    expiresAt.toInstant().toEpochMilli() - System.currentTimeMillis());
+            return Math.max(0, Math.min(ttlNanos, untilExpiry));
+        }
+
+        @Override
+        public long expireAfterUpdate(String accessToken, UserAuthEntity session, long currentTime,
+                                      long currentDuration) {
+            return expireAfterCreate(accessToken, session, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String accessToken, UserAuthEntity session, long currentTime,
+                                    long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
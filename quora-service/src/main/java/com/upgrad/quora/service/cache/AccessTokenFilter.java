@@ -0,0 +1,152 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.common.BloomFilter;
+import com.upgrad.quora.service.common.RebuildableIndex;
+import com.upgrad.quora.service.common.TokenDigest;
+import com.upgrad.quora.service.dao.UserAuthRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over the digests of all access tokens in USER_AUTH, so that unknown tokens are rejected
+ * in memory instead of costing a findByAccessTokenDigest query.
+ * <p>
+ * The filter is a snapshot rebuilt at startup and periodically; tokens issued by this instance are added
+ * on sign-in. A token issued after the snapshot was taken may come from another instance, so the filter
+ * is only consulted for tokens that were issued before it.
+ */
+@Component
+public class AccessTokenFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AccessTokenFilter.class);
+
+    /** Allowance for clock differences between the instances issuing tokens. */
+    private static final long CLOCK_SKEW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    @Autowired
+    private UserAuthRepository userAuthRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.auth.token-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.auth.token-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${quora.auth.token-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private final RebuildableIndex<BloomFilter> filter = new RebuildableIndex<>();
+
+    /** Start of the snapshot the current filter was built from. */
+    private volatile long snapshotMillis;
+
+    private final AtomicLong lastBuildMillis = new AtomicLong();
+
+    private Counter rejections;
+
+    private Counter falsePositives;
+
+    @PostConstruct
+    public void init() {
+        rejections = meterRegistry.counter("quora.auth.token.filter.rejections");
+        falsePositives = meterRegistry.counter("quora.auth.token.filter.false.positives");
+        Gauge.builder("quora.auth.token.filter.expected.fpp", filter,
+                f -> f.get() == null ? 0 : f.get().expectedFalsePositiveRate()).register(meterRegistry);
+        Gauge.builder("quora.auth.token.filter.entries", filter,
+                f -> f.get() == null ? 0 : f.get().getInsertions()).register(meterRegistry);
+        Gauge.builder("quora.auth.token.filter.size", filter,
+                f -> f.get() == null ? 0 : f.get().getSizeInBytes()).baseUnit("bytes").register(meterRegistry);
+        Gauge.builder("quora.auth.token.filter.build.duration", lastBuildMillis, AtomicLong::get)
+                .baseUnit("milliseconds").register(meterRegistry);
+    }
+
+    /**
+     * @param accessToken : access-token sent by the client
+     * @param issuedAt    : issue time of a verified JWT, or null for an opaque token
+     * @return false if the token is definitely not in USER_AUTH
+     */
+    public boolean mightContain(final String accessToken, final Date issuedAt) {
+        final BloomFilter current = filter.get();
+        if (!enabled || current == null) {
+            return true;
+        }
+        if (issuedAt != null && issuedAt.getTime() >= snapshotMillis - CLOCK_SKEW_MILLIS) {
+            return true;
+        }
+        if (current.mightContain(TokenDigest.sha256(accessToken))) {
+            return true;
+        }
+        rejections.increment();
+        return false;
+    }
+
+    /**
+     * Add a newly issued access token.
+     *
+     * @param accessToken : access-token stored in USER_AUTH
+     */
+    public void put(final String accessToken) {
+        final byte[] digest = TokenDigest.sha256(accessToken);
+        filter.apply(target -> target.put(digest));
+    }
+
+    /**
+     * Record that a token passed the filter but does not exist.
+     */
+    public void recordFalsePositive() {
+        if (enabled && filter.get() != null) {
+            falsePositives.increment();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the filter from USER_AUTH, dropping the tokens of rows that have been removed.
+     */
+    @Scheduled(initialDelayString = "${quora.auth.token-filter.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${quora.auth.token-filter.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        final long started = System.currentTimeMillis();
+        final long size = Math.max(expectedInsertions, userAuthRepository.count() * 2);
+        final BloomFilter next = filter.rebuild(new BloomFilter(size, falsePositiveRate),
+                target -> transactionTemplate.execute(status -> {
+                    try (Stream<Object[]> rows = userAuthRepository.streamAllAccessTokenDigests()) {
+                        rows.forEach(row -> target.put((byte[]) row[1]));
+                    }
+                    return null;
+                }));
+        // Set after the swap: until then the older snapshot time sends more tokens past the old filter
+        snapshotMillis = started;
+        lastBuildMillis.set(System.currentTimeMillis() - started);
+        LOG.info("Access token filter rebuilt with {} tokens in {} ms", next.getInsertions(), lastBuildMillis.get());
+    }
+}
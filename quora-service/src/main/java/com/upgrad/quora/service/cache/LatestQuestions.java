@@ -0,0 +1,169 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.common.RingBuffer;
+import com.upgrad.quora.service.common.TransactionHooks;
+import com.upgrad.quora.service.dao.LatestQuestion;
+import com.upgrad.quora.service.dao.QuestionRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.time.ZonedDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Feed of the latest questions, served from a RingBuffer of the latest question summaries without a query
+ * or a lock. The buffer is loaded from QUESTION when the application is ready and reloaded periodically;
+ * questions created, edited or deleted through this instance are applied when their transaction commits,
+ * changes made on other instances show up after the next reload. The buffer holds more questions than a
+ * feed returns, so that the feed stays full as questions are deleted.
+ */
+@Component
+public class LatestQuestions {
+
+    private static final Logger LOG = LoggerFactory.getLogger(LatestQuestions.class);
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.latest-questions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.latest-questions.capacity:500}")
+    private int capacity;
+
+    /** The buffer answering reads, null until it is first loaded. */
+    private volatile RingBuffer<Question> buffer;
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("quora.questions.latest.entries", this, l -> l.buffer == null ? 0 : l.buffer.size())
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param limit : maximum number of questions
+     * @return the latest questions, latest first
+     */
+    public List<Question> latest(final int limit) {
+        final RingBuffer<Question> current = buffer;
+        return current == null ? Collections.<Question>emptyList() : current.latest(limit);
+    }
+
+    /**
+     * Add a created question as the latest once the surrounding transaction commits.
+     */
+    public void add(final Integer questionId, final String questionUuid, final String content,
+                    final ZonedDateTime date) {
+        final Question question = new Question(questionUuid, content, date);
+        afterCommit(target -> target.append(questionId, question));
+    }
+
+    /**
+     * Replace the content of an edited question once the surrounding transaction commits, if it is one of
+     * the latest.
+     */
+    public void edit(final Integer questionId, final String questionUuid, final String content,
+                     final ZonedDateTime date) {
+        final Question question = new Question(questionUuid, content, date);
+        afterCommit(target -> target.replace(questionId, question));
+    }
+
+    /**
+     * Remove a question once the surrounding transaction commits.
+     */
+    public void remove(final Integer questionId) {
+        afterCommit(target -> target.remove(questionId));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        reload();
+    }
+
+    /**
+     * Reload the buffer with the latest questions of QUESTION. Changes are held back while the buffer is
+     * reloaded, so that none is lost between the query and the swap.
+     */
+    @Scheduled(initialDelayString = "${quora.latest-questions.reload-interval-ms:60000}",
+            fixedDelayString = "${quora.latest-questions.reload-interval-ms:60000}")
+    public synchronized void reload() {
+        if (!enabled) {
+            return;
+        }
+        final long started = System.currentTimeMillis();
+        final List<LatestQuestion> questions = transactionTemplate.execute(
+                status -> questionRepository.findLatestQuestions(PageRequest.of(0, capacity)));
+        final RingBuffer<Question> next = new RingBuffer<>(capacity);
+        for (int i = questions.size() - 1; i >= 0; i--) {
+            final LatestQuestion question = questions.get(i);
+            next.append(question.getId(), new Question(question.getUuid(), question.getContent(), question.getDate()));
+        }
+        buffer = next;
+        LOG.debug("Latest questions reloaded with {} questions in {} ms", next.size(),
+                System.currentTimeMillis() - started);
+    }
+
+    private void afterCommit(final Consumer<RingBuffer<Question>> change) {
+        final Runnable apply = () -> {
+            synchronized (this) {
+                final RingBuffer<Question> current = buffer;
+                if (current != null) {
+                    change.accept(current);
+                }
+            }
+        };
+        TransactionHooks.afterCommit(apply);
+    }
+
+    /**
+     * A question of the feed.
+     */
+    public static final class Question {
+
+        private final String uuid;
+
+        private final String content;
+
+        private final ZonedDateTime date;
+
+        Question(final String uuid, final String content, final ZonedDateTime date) {
+            this.uuid = uuid;
+            this.content = content;
+            this.date = date;
+        }
+
+        public String getUuid() {
+            return uuid;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        /**
+         * @return time the question was posted
+         */
+        public ZonedDateTime getDate() {
+            return date;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.upgrad.quora.service.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.upgrad.quora.service.common.TransactionHooks;
+import com.upgrad.quora.service.dao.QuestionDetail;
+import com.upgrad.quora.service.dao.QuestionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-through cache of the questions looked up by uuid. It is bounded by an estimate of the memory its
+ * entries take, so a few long questions cannot crowd out many short ones. Entries read after the refresh
+ * interval are reloaded in the background while the old value is still served; entries that are not read
+ * expire after the ttl. Questions which do not exist are not cached.
+ */
+@Component
+public class QuestionCache {
+
+    /**
+     * Approximate bytes of an entry besides its strings: the entry, the QuestionDetail and the string headers.
+     */
+    private static final int ENTRY_OVERHEAD = 160;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.question-cache.maximum-weight-bytes:16777216}")
+    private long maximumWeight;
+
+    @Value("${quora.question-cache.refresh-seconds:60}")
+    private long refreshSeconds;
+
+    @Value("${quora.question-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private LoadingCache<String, QuestionDetail> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(QuestionCache::weigh)
+                .refreshAfterWrite(refreshSeconds, TimeUnit.SECONDS)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build(questionRepository::findQuestionDetailByUuid);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "questionCache");
+    }
+
+    /**
+     * Returns the question, loading it from the database on a cache miss.
+     *
+     * @param questionUuid : uuid of the question
+     * @return QuestionDetail or null if the question does not exist
+     */
+    public QuestionDetail findByUuid(final String questionUuid) {
+        return cache.get(questionUuid);
+    }
+
+    /**
+     * Removes the question, now and again after the surrounding transaction commits.
+     *
+     * @param questionUuid : uuid of the question
+     */
+    public void invalidate(final String questionUuid) {
+        TransactionHooks.nowAndAfterCommit(() -> cache.invalidate(questionUuid));
+    }
+
+    /**
+     * Removes every cached question of a user, now and again after the surrounding transaction commits.
+     *
+     * @param userId : id of the user
+     */
+    public void invalidateUser(final Integer userId) {
+        TransactionHooks.nowAndAfterCommit(() -> cache.asMap().values()
+                .removeIf(question -> userId.equals(question.getUserId())));
+    }
+
+    private static int weigh(final String questionUuid, final QuestionDetail question) {
+        final int chars = questionUuid.length() + question.getUuid().length() + question.getUserUuid().length()
+                + (question.getContent() == null ? 0 : question.getContent().length());
+        return ENTRY_OVERHEAD + 2 * chars;
+    }
+}
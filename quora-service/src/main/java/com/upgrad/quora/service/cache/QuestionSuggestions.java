@@ -0,0 +1,186 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.common.PrefixIndex;
+import com.upgrad.quora.service.common.RebuildableIndex;
+import com.upgrad.quora.service.common.Words;
+import com.upgrad.quora.service.dao.QuestionRepository;
+import com.upgrad.quora.service.dao.QuestionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Type-ahead suggestions of existing questions, answered from an in-memory PrefixIndex over the normalized
+ * question content: lower case, without accents, with every run of other characters than letters and
+ * digits replaced by one space. Only the start of the content is indexed, which is all a prefix typed by
+ * a user can reach. The index is built from QUESTION when the application is ready and rebuilt
+ * periodically; changes made through this instance are applied when their transaction commits, changes
+ * made on other instances show up after the next rebuild.
+ */
+@Component
+public class QuestionSuggestions {
+
+    private static final Logger LOG = LoggerFactory.getLogger(QuestionSuggestions.class);
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.question-suggestions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.question-suggestions.max-key-length:64}")
+    private int maxKeyLength;
+
+    private final RebuildableIndex<PrefixIndex<Suggestion>> index = new RebuildableIndex<>();
+
+    private Timer lookupTimer;
+
+    @PostConstruct
+    public void init() {
+        lookupTimer = meterRegistry.timer("quora.questions.suggestions.lookup");
+        Gauge.builder("quora.questions.suggestions.entries", index, i -> i.get() == null ? 0 : i.get().size())
+                .register(meterRegistry);
+        Gauge.builder("quora.questions.suggestions.bytes", index,
+                i -> i.get() == null ? 0 : i.get().getEstimatedBytes())
+                .description("Approximate memory taken by the suggestion index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * @param prefix : start of a question as typed by the user
+     * @param limit  : maximum number of suggestions
+     * @return questions starting with the prefix, in alphabetical order of their normalized content
+     */
+    public List<Suggestion> suggest(final String prefix, final int limit) {
+        final PrefixIndex<Suggestion> current = index.get();
+        final String key = normalize(prefix, true);
+        if (current == null || key.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final long started = System.nanoTime();
+        try {
+            return current.find(key, limit);
+        } finally {
+            lookupTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Add or replace a question once the surrounding transaction commits.
+     */
+    public void put(final Integer questionId, final String questionUuid, final String content) {
+        final String key = normalize(content, false);
+        final Suggestion suggestion = new Suggestion(questionUuid, content);
+        index.applyAfterCommit(target -> target.put(questionId, key, suggestion));
+    }
+
+    /**
+     * Remove a question once the surrounding transaction commits.
+     */
+    public void remove(final Integer questionId) {
+        index.applyAfterCommit(target -> target.remove(questionId));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the index from QUESTION.
+     */
+    @Scheduled(initialDelayString = "${quora.question-suggestions.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${quora.question-suggestions.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        final long started = System.currentTimeMillis();
+        final PrefixIndex<Suggestion> next = index.rebuild(new PrefixIndex<>(Suggestion::estimatedBytes),
+                target -> transactionTemplate.execute(status -> {
+                    try (Stream<QuestionSummary> questions = questionRepository.streamAllQuestions()) {
+                        questions.forEach(question -> target.put(question.getId(),
+                                normalize(question.getContent(), false),
+                                new Suggestion(question.getUuid(), question.getContent())));
+                    }
+                    return null;
+                }));
+        LOG.info("Question suggestions rebuilt with {} questions, about {} KB, in {} ms", next.size(),
+                next.getEstimatedBytes() / 1024, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * @param text         : question content or typed prefix
+     * @param keepTrailing : keep one trailing space, so that a prefix ending with a complete word does not
+     *                     match longer words
+     * @return the normalized text, cut to the maximum key length
+     */
+    private String normalize(final String text, final boolean keepTrailing) {
+        final String key = String.join(" ", Words.split(text));
+        if (keepTrailing && !key.isEmpty() && key.length() < maxKeyLength && endsWithSeparator(text)) {
+            return key + ' ';
+        }
+        return key.length() > maxKeyLength ? key.substring(0, maxKeyLength) : key;
+    }
+
+    /**
+     * @return whether the last character of the text that Words.split does not skip separates words
+     */
+    private static boolean endsWithSeparator(final String text) {
+        for (int i = text.length() - 1; i >= 0; i--) {
+            final char c = text.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                return !Character.isLetterOrDigit(c);
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A suggested question.
+     */
+    public static final class Suggestion {
+
+        private final String uuid;
+
+        private final String content;
+
+        Suggestion(final String uuid, final String content) {
+            this.uuid = uuid;
+            this.content = content;
+        }
+
+        public String getUuid() {
+            return uuid;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        private long estimatedBytes() {
+            return 96 + 2L * (uuid.length() + content.length());
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.common.TransactionHooks;
+import com.upgrad.quora.service.entity.QuestionEntity;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.jpa.HibernateMetrics;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+
+/**
+ * Hibernate's second-level cache of users and questions. Publishes the Hibernate statistics with a hit ratio
+ * per cache region, and evicts the entries the database changes behind Hibernate's back.
+ */
+@Component
+public class SecondLevelCache {
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @PostConstruct
+    public void init() {
+        HibernateMetrics.monitor(meterRegistry, entityManagerFactory, "entityManagerFactory");
+        final Statistics statistics = sessionFactory().getStatistics();
+        for (final String region : statistics.getSecondLevelCacheRegionNames()) {
+            Gauge.builder("hibernate.second.level.cache.hit.ratio", statistics, s -> hitRatio(s, region))
+                    .tags("entityManagerFactory", "entityManagerFactory", "region", region)
+                    .description("Ratio of the second-level cache requests served from the region")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Evicts every cached question, after questions were changed in the database only: ON DELETE CASCADE
+     * removes the questions of a deleted user, and reconciliation rewrites answer counts. The region is
+     * evicted now and again after the surrounding transaction commits.
+     */
+    public void evictQuestions() {
+        TransactionHooks.nowAndAfterCommit(() -> entityManagerFactory.getCache().evict(QuestionEntity.class));
+    }
+
+    /**
+     * Evicts a question changed by a native update, now and again after the surrounding transaction
+     * commits.
+     *
+     * @param questionId : id of the question
+     */
+    public void evictQuestion(final Integer questionId) {
+        TransactionHooks.nowAndAfterCommit(() -> entityManagerFactory.getCache().evict(QuestionEntity.class, questionId));
+    }
+
+    private SessionFactory sessionFactory() {
+        return entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+    private static double hitRatio(final Statistics statistics, final String region) {
+        final SecondLevelCacheStatistics regionStatistics = statistics.getSecondLevelCacheStatistics(region);
+        if (regionStatistics == null) {
+            return Double.NaN;
+        }
+        final long requests = regionStatistics.getHitCount() + regionStatistics.getMissCount();
+        return requests == 0 ? Double.NaN : (double) regionStatistics.getHitCount() / requests;
+    }
+}
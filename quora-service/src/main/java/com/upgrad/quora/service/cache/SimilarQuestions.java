@@ -0,0 +1,246 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.common.MinHashIndex;
+import com.upgrad.quora.service.common.RebuildableIndex;
+import com.upgrad.quora.service.common.Words;
+import com.upgrad.quora.service.dao.QuestionRepository;
+import com.upgrad.quora.service.dao.QuestionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Finds the existing questions most similar to a new one, so that a question asked before can be pointed
+ * out instead of being posted again. Questions are compared as sets of the words and pairs of consecutive
+ * words of their normalized content, by Jaccard similarity, so that the order of the words matters but
+ * case, accents and punctuation do not. A MinHashIndex held in memory narrows the questions down to a few
+ * candidates without a query; the candidates are then read from QUESTION and compared exactly. The index
+ * is built when the application is ready and rebuilt periodically; changes made through this instance are
+ * applied when their transaction commits, changes made on other instances show up after the next rebuild.
+ */
+@Component
+public class SimilarQuestions {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SimilarQuestions.class);
+
+    /**
+     * 16 bands of 3 rows: questions of similarity 0.5 are candidates 88% of the time, 0.6 98% of the time,
+     * and 0.2 only 12% of the time.
+     */
+    private static final int BANDS = 16;
+
+    private static final int ROWS = 3;
+
+    private static final int BUCKET_BITS = 16;
+
+    /**
+     * With a million questions, skipping the buckets above this size keeps the slowest lookups under a
+     * millisecond and misses no more near duplicates.
+     */
+    private static final int MAX_BUCKET_SCAN = 1024;
+
+    /** Candidates are kept down to this much below the reported similarity, as the estimate is rough. */
+    private static final double ESTIMATE_MARGIN = 0.15;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.similar-questions.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.similar-questions.min-similarity:0.6}")
+    private double minSimilarity;
+
+    @Value("${quora.similar-questions.max-results:5}")
+    private int maxResults;
+
+    private final RebuildableIndex<MinHashIndex> index = new RebuildableIndex<>();
+
+    private Timer lookupTimer;
+
+    @PostConstruct
+    public void init() {
+        lookupTimer = meterRegistry.timer("quora.questions.similar.lookup");
+        Gauge.builder("quora.questions.similar.entries", index, i -> i.get() == null ? 0 : i.get().size())
+                .register(meterRegistry);
+        Gauge.builder("quora.questions.similar.bytes", index,
+                i -> i.get() == null ? 0 : i.get().getEstimatedBytes())
+                .description("Approximate memory taken by the similar question index")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reads the candidates from QUESTION, so call it inside a transaction.
+     *
+     * @param content : content of a question
+     * @return existing questions at least as similar as the minimum similarity, most similar first
+     */
+    public List<Match> find(final String content) {
+        final MinHashIndex current = index.get();
+        final Set<String> features = features(content);
+        if (current == null || features.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final long started = System.nanoTime();
+        final List<MinHashIndex.Match> candidates = current.find(current.signature(features),
+                minSimilarity - ESTIMATE_MARGIN, 2 * maxResults);
+        lookupTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+        final List<Integer> ids = new ArrayList<>(candidates.size());
+        for (MinHashIndex.Match candidate : candidates) {
+            ids.add(candidate.getId());
+        }
+        final List<Match> matches = new ArrayList<>();
+        for (QuestionSummary question : questionRepository.findQuestionSummariesByIds(ids)) {
+            final double similarity = jaccard(features, features(question.getContent()));
+            if (similarity >= minSimilarity) {
+                matches.add(new Match(question.getUuid(), question.getContent(), similarity));
+            }
+        }
+        matches.sort(Comparator.comparingDouble(Match::getSimilarity).reversed());
+        return matches.size() > maxResults ? new ArrayList<>(matches.subList(0, maxResults)) : matches;
+    }
+
+    /**
+     * Add or replace a question once the surrounding transaction commits.
+     */
+    public void put(final Integer questionId, final String content) {
+        final Set<String> features = features(content);
+        index.applyAfterCommit(target -> {
+            final byte[] signature = target.signature(features);
+            if (signature == null) {
+                target.remove(questionId);
+            } else {
+                target.put(questionId, signature);
+            }
+        });
+    }
+
+    /**
+     * Remove a question once the surrounding transaction commits.
+     */
+    public void remove(final Integer questionId) {
+        index.applyAfterCommit(target -> target.remove(questionId));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the index from QUESTION.
+     */
+    @Scheduled(initialDelayString = "${quora.similar-questions.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${quora.similar-questions.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        final long started = System.currentTimeMillis();
+        final MinHashIndex next = index.rebuild(new MinHashIndex(BANDS, ROWS, BUCKET_BITS, MAX_BUCKET_SCAN),
+                target -> transactionTemplate.execute(status -> {
+                    try (Stream<QuestionSummary> questions = questionRepository.streamAllQuestions()) {
+                        questions.forEach(question -> {
+                            final byte[] signature = target.signature(features(question.getContent()));
+                            if (signature != null) {
+                                target.put(question.getId(), signature);
+                            }
+                        });
+                    }
+                    return null;
+                }));
+        LOG.info("Similar question index rebuilt with {} questions, about {} KB, in {} ms", next.size(),
+                next.getEstimatedBytes() / 1024, System.currentTimeMillis() - started);
+    }
+
+    /**
+     * @param content : question content
+     * @return the words of the content, lower case and without accents, and each pair of consecutive words
+     */
+    private static Set<String> features(final String content) {
+        final Set<String> features = new HashSet<>();
+        String previous = null;
+        for (String word : Words.split(content)) {
+            features.add(word);
+            if (previous != null) {
+                features.add(previous + ' ' + word);
+            }
+            previous = word;
+        }
+        return features;
+    }
+
+    private static double jaccard(final Set<String> a, final Set<String> b) {
+        if (a.isEmpty() || b.isEmpty()) {
+            return 0;
+        }
+        int common = 0;
+        for (String feature : a) {
+            if (b.contains(feature)) {
+                common++;
+            }
+        }
+        return (double) common / (a.size() + b.size() - common);
+    }
+
+    /**
+     * An existing question similar to the one looked for.
+     */
+    public static final class Match {
+
+        private final String uuid;
+
+        private final String content;
+
+        private final double similarity;
+
+        Match(final String uuid, final String content, final double similarity) {
+            this.uuid = uuid;
+            this.content = content;
+            this.similarity = similarity;
+        }
+
+        public String getUuid() {
+            return uuid;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        /**
+         * @return Jaccard similarity of the words and word pairs of the two questions, from 0 to 1
+         */
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+}
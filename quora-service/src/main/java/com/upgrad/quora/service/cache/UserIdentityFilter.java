@@ -0,0 +1,122 @@
+package com.upgrad.quora.service.cache;
+
+import com.upgrad.quora.service.common.BloomFilter;
+import com.upgrad.quora.service.common.RebuildableIndex;
+import com.upgrad.quora.service.common.TokenDigest;
+import com.upgrad.quora.service.dao.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PostConstruct;
+import java.util.stream.Stream;
+
+/**
+ * Bloom filter over the usernames and emails in USERS. A sign-up whose username and email are both
+ * definitely free skips the uniqueness query; any other sign-up checks the database before its password
+ * is hashed. The unique constraints stay the source of truth, so names taken after the filter was built,
+ * for example on another instance, are still rejected by the insert.
+ */
+@Component
+public class UserIdentityFilter {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserIdentityFilter.class);
+
+    private static final String USER_NAME_PREFIX = "username:";
+    private static final String EMAIL_PREFIX = "email:";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.signup.identity-filter.enabled:true}")
+    private boolean enabled;
+
+    @Value("${quora.signup.identity-filter.expected-insertions:1000000}")
+    private long expectedInsertions;
+
+    @Value("${quora.signup.identity-filter.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private final RebuildableIndex<BloomFilter> filter = new RebuildableIndex<>();
+
+    private Counter skippedChecks;
+
+    @PostConstruct
+    public void init() {
+        skippedChecks = meterRegistry.counter("quora.signup.identity.filter.skipped.checks");
+    }
+
+    /**
+     * @param userName : username of the sign-up
+     * @param email    : email of the sign-up
+     * @return false if neither the username nor the email is in USERS
+     */
+    public boolean mightBeTaken(final String userName, final String email) {
+        final BloomFilter current = filter.get();
+        if (!enabled || current == null) {
+            return true;
+        }
+        if (current.mightContain(TokenDigest.sha256(USER_NAME_PREFIX + userName))
+                || current.mightContain(TokenDigest.sha256(EMAIL_PREFIX + email))) {
+            return true;
+        }
+        skippedChecks.increment();
+        return false;
+    }
+
+    /**
+     * Add the username and email of a newly created user.
+     */
+    public void put(final String userName, final String email) {
+        final byte[] userNameDigest = TokenDigest.sha256(USER_NAME_PREFIX + userName);
+        final byte[] emailDigest = TokenDigest.sha256(EMAIL_PREFIX + email);
+        filter.apply(target -> {
+            target.put(userNameDigest);
+            target.put(emailDigest);
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        rebuild();
+    }
+
+    /**
+     * Rebuild the filter from USERS, dropping the names of deleted users.
+     */
+    @Scheduled(initialDelayString = "${quora.signup.identity-filter.rebuild-interval-ms:3600000}",
+            fixedDelayString = "${quora.signup.identity-filter.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        final long started = System.currentTimeMillis();
+        final long size = Math.max(expectedInsertions, userRepository.count() * 4);
+        final BloomFilter next = filter.rebuild(new BloomFilter(size, falsePositiveRate),
+                target -> transactionTemplate.execute(status -> {
+                    try (Stream<Object[]> rows = userRepository.streamAllUserNamesAndEmails()) {
+                        rows.forEach(row -> {
+                            target.put(TokenDigest.sha256(USER_NAME_PREFIX + row[0]));
+                            target.put(TokenDigest.sha256(EMAIL_PREFIX + row[1]));
+                        });
+                    }
+                    return null;
+                }));
+        LOG.info("User identity filter rebuilt with {} entries in {} ms", next.getInsertions(),
+                System.currentTimeMillis() - started);
+    }
+}
@@ -0,0 +1,161 @@
+package com.upgrad.quora.service.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.upgrad.quora.service.common.TransactionHooks;
+import com.upgrad.quora.service.dao.QuestionRepository;
+import com.upgrad.quora.service.dao.QuestionSummary;
+import com.upgrad.quora.service.dao.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-through cache of the questions posted by each user, by user uuid. It is bounded by an estimate of the
+ * memory its entries take, so that a few prolific users cannot crowd out many others. Entries are removed
+ * whenever one of the user's questions is created, edited or deleted, or gains or loses an answer, and
+ * expire after the ttl so that changes made on other instances show up. Users which do not exist are not
+ * cached.
+ */
+@Component
+public class UserQuestionsCache {
+
+    /** Approximate bytes of an entry besides its questions: the entry, the key and the list. */
+    private static final int ENTRY_OVERHEAD = 120;
+
+    /** Approximate bytes of a question besides its strings: the summary, its fields and the string headers. */
+    private static final int QUESTION_OVERHEAD = 120;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private QuestionRepository questionRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${quora.user-questions-cache.maximum-weight-bytes:16777216}")
+    private long maximumWeight;
+
+    @Value("${quora.user-questions-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private LoadingCache<String, List<QuestionSummary>> cache;
+
+    @PostConstruct
+    public void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher(UserQuestionsCache::weigh)
+                .expireAfterWrite(ttlSeconds, TimeUnit.SECONDS)
+                .recordStats()
+                .build(this::load);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "userQuestionsCache");
+    }
+
+    /**
+     * Returns the questions of the user, loading them from the database on a cache miss.
+     *
+     * @param userUuid : uuid of the user
+     * @return the user's questions in id order, or null if the user does not exist
+     */
+    public List<QuestionSummary> findByUserUuid(final String userUuid) {
+        return cache.get(userUuid);
+    }
+
+    /**
+     * Removes the questions of the user, now and again after the surrounding transaction commits.
+     *
+     * @param userUuid : uuid of the user
+     */
+    public void invalidate(final String userUuid) {
+        TransactionHooks.nowAndAfterCommit(() -> cache.invalidate(userUuid));
+    }
+
+    /**
+     * Removes every cached list, after answer counts were rewritten in the database only.
+     */
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    private List<QuestionSummary> load(final String userUuid) {
+        final Integer userId = userRepository.findIdByUuid(userUuid);
+        if (userId == null) {
+            return null;
+        }
+        final List<QuestionSummary> questions = new ArrayList<>();
+        for (QuestionSummary question : questionRepository.findQuestionSummariesByUserId(userId)) {
+            questions.add(new CachedQuestion(question));
+        }
+        return Collections.unmodifiableList(questions);
+    }
+
+    private static int weigh(final String userUuid, final List<QuestionSummary> questions) {
+        long bytes = ENTRY_OVERHEAD + 2L * userUuid.length();
+        for (QuestionSummary question : questions) {
+            bytes += QUESTION_OVERHEAD + 2L * (question.getUuid().length()
+                    + (question.getContent() == null ? 0 : question.getContent().length()));
+        }
+        return (int) Math.min(bytes, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Copy of a question read from the database, which does not keep the result row of the projection.
+     */
+    private static final class CachedQuestion implements QuestionSummary {
+
+        private final Integer id;
+
+        private final String uuid;
+
+        private final String content;
+
+        private final Integer answerCount;
+
+        private final ZonedDateTime lastAnswerAt;
+
+        CachedQuestion(final QuestionSummary question) {
+            this.id = question.getId();
+            this.uuid = question.getUuid();
+            this.content = question.getContent();
+            this.answerCount = question.getAnswerCount();
+            this.lastAnswerAt = question.getLastAnswerAt();
+        }
+
+        @Override
+        public Integer getId() {
+            return id;
+        }
+
+        @Override
+        public String getUuid() {
+            return uuid;
+        }
+
+        @Override
+        public String getContent() {
+            return content;
+        }
+
+        @Override
+        public Integer getAnswerCount() {
+            return answerCount;
+        }
+
+        @Override
+        public ZonedDateTime getLastAnswerAt() {
+            return lastAnswerAt;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.upgrad.quora.service.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread-safe Bloom filter over keys that are already uniformly distributed digests, such as SHA-256
+ * digests, so the bit positions can be taken from the digest itself instead of being hashed again.
+ * A negative answer is definite and a positive answer may be a false positive.
+ */
+public class BloomFilter {
+
+    private final AtomicLongArray bits;
+    private final long bitSize;
+    private final int hashFunctions;
+    private final AtomicLong insertions = new AtomicLong();
+
+    /**
+     * @param expectedInsertions - number of keys the filter is sized for
+     * @param falsePositiveRate  - wanted false positive rate at the expected number of keys
+     */
+    public BloomFilter(final long expectedInsertions, final double falsePositiveRate) {
+        final long n = Math.max(1, expectedInsertions);
+        final long m = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        final int words = (int) Math.max(1, (m + 63) / 64);
+        this.bits = new AtomicLongArray(words);
+        this.bitSize = words * 64L;
+        this.hashFunctions = (int) Math.max(1, Math.round((double) bitSize / n * Math.log(2)));
+    }
+
+    /**
+     * @param digest - digest of at least 16 bytes
+     */
+    public void put(final byte[] digest) {
+        final long h1 = readLong(digest, 0);
+        final long h2 = readLong(digest, 8);
+        for (int i = 0; i < hashFunctions; i++) {
+            final long index = Math.floorMod(h1 + i * h2, bitSize);
+            final int word = (int) (index >>> 6);
+            final long mask = 1L << index;
+            long current;
+            do {
+                current = bits.get(word);
+                if ((current & mask) != 0) {
+                    break;
+                }
+            } while (!bits.compareAndSet(word, current, current | mask));
+        }
+        insertions.incrementAndGet();
+    }
+
+    /**
+     * @param digest - digest of at least 16 bytes
+     * @return false if the digest was definitely never added
+     */
+    public boolean mightContain(final byte[] digest) {
+        final long h1 = readLong(digest, 0);
+        final long h2 = readLong(digest, 8);
+        for (int i = 0; i < hashFunctions; i++) {
+            final long index = Math.floorMod(h1 + i * h2, bitSize);
+            if ((bits.get((int) (index >>> 6)) & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return false positive rate expected for the number of keys added so far
+     */
+    public double expectedFalsePositiveRate() {
+        return Math.pow(1 - Math.exp(-hashFunctions * (double) insertions.get() / bitSize), hashFunctions);
+    }
+
+    public long getInsertions() {
+        return insertions.get();
+    }
+
+    public long getBitSize() {
+        return bitSize;
+    }
+
+    public long getSizeInBytes() {
+        return bitSize / 8;
+    }
+
+    private static long readLong(final byte[] bytes, final int offset) {
+        long value = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            value = (value << 8) | (bytes[i] & 0xFF);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,51 @@
+package com.upgrad.quora.service.common;
+
+import com.upgrad.quora.service.exception.InvalidCursorException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes the position a page ends at as an opaque cursor: the kind of position and its value, as
+ * "prefix:value" in URL-safe Base64. KeysetPage and OffsetPage only differ in the prefix.
+ */
+final class CursorCodec {
+
+    private CursorCodec() {
+    }
+
+    /**
+     * @param prefix   - kind of position, ending with a colon
+     * @param position - position the next page starts after, not negative
+     * @return cursor of the position
+     */
+    static String encode(final String prefix, final int position) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((prefix + position).getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param prefix - kind of position the cursor must hold
+     * @param cursor - cursor sent by the client, may be null for the first page
+     * @return position held by the cursor, 0 for the first page
+     * @throws InvalidCursorException : PAG-001 if the cursor was not encoded with the prefix or holds a
+     * negative position
+     */
+    static int decode(final String prefix, final String cursor) throws InvalidCursorException {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            final String decoded = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (decoded.startsWith(prefix)) {
+                final int position = Integer.parseInt(decoded.substring(prefix.length()));
+                if (position >= 0) {
+                    return position;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // falls through to the exception below, NumberFormatException included
+        }
+        throw new InvalidCursorException("PAG-001", "Invalid cursor");
+    }
+}
@@ -0,0 +1,107 @@
+package com.upgrad.quora.service.common;
+
+import com.upgrad.quora.service.exception.InvalidCursorException;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a listing ordered by id, with the opaque cursor that continues the listing after the last
+ * item of the page. The next page is read with "id > cursor id", so reading page n costs the same as
+ * reading the first page.
+ */
+public final class KeysetPage<T> {
+
+    private static final String CURSOR_PREFIX = "id:";
+
+    private final List<T> items;
+
+    private final String nextCursor;
+
+    private KeysetPage(final List<T> items, final String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @param rows  - up to limit + 1 rows ordered by id; the extra row only tells that there is a next page
+     * @param limit - page size
+     * @param idOf  - id of a row
+     * @return page of at most limit rows
+     */
+    public static <T> KeysetPage<T> of(final List<T> rows, final int limit, final Function<T, Integer> idOf) {
+        if (rows.size() <= limit) {
+            return new KeysetPage<>(Collections.unmodifiableList(rows), null);
+        }
+        final List<T> items = rows.subList(0, limit);
+        return new KeysetPage<>(Collections.unmodifiableList(items), encodeCursor(idOf.apply(items.get(limit - 1))));
+    }
+
+    /**
+     * @param all - every row of the listing
+     * @return single page holding every row, without a next page
+     */
+    public static <T> KeysetPage<T> all(final List<T> all) {
+        return new KeysetPage<>(Collections.unmodifiableList(all), null);
+    }
+
+    /**
+     * @param all     - every row of the listing, ordered by id
+     * @param afterId - id after which the page starts
+     * @param limit   - page size
+     * @param idOf    - id of a row
+     * @return page of at most limit rows of a listing held in memory, found by binary search
+     */
+    public static <T> KeysetPage<T> after(final List<T> all, final int afterId, final int limit,
+                                          final Function<T, Integer> idOf) {
+        int low = 0;
+        int high = all.size();
+        while (low < high) {
+            final int middle = (low + high) >>> 1;
+            if (idOf.apply(all.get(middle)) <= afterId) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return of(all.subList(low, Math.min(all.size(), low + limit + 1)), limit, idOf);
+    }
+
+    /**
+     * @param requested    - page size asked for by the client, may be null
+     * @param defaultLimit - page size if none was asked for
+     * @param maxLimit     - largest page size served
+     * @return page size to use
+     */
+    public static int limit(final Integer requested, final int defaultLimit, final int maxLimit) {
+        if (requested == null || requested <= 0) {
+            return defaultLimit;
+        }
+        return Math.min(requested, maxLimit);
+    }
+
+    /**
+     * @param cursor - cursor sent by the client, may be null for the first page
+     * @return id after which the page starts, 0 for the first page
+     * @throws InvalidCursorException : PAG-001 if the cursor was not issued by KeysetPage
+     */
+    public static int decodeCursor(final String cursor) throws InvalidCursorException {
+        return CursorCodec.decode(CURSOR_PREFIX, cursor);
+    }
+
+    private static String encodeCursor(final Integer id) {
+        return CursorCodec.encode(CURSOR_PREFIX, id);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return cursor of the next page, or null if this is the last page
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,263 @@
+package com.upgrad.quora.service.common;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Locality-sensitive index of feature sets, answering "which indexed sets are probably similar to this one"
+ * without comparing against every set. Each set is reduced to a MinHash signature, of which only the lowest
+ * byte of each hash is kept: the share of equal bytes between two signatures estimates the Jaccard
+ * similarity of their sets. The signature is cut into bands, and a set is filed in one bucket per band, so
+ * that a lookup only compares the sets sharing a whole band with it: with b bands of r rows, two sets of
+ * similarity s share a band with probability 1 - (1 - s^r)^b. Writes are serialized; lookups run
+ * concurrently with them and never block.
+ */
+public final class MinHashIndex {
+
+    /**
+     * Approximate bytes of an entry besides its signature and bucket slots: the entry and its array header,
+     * the node and Integer of the id map, and the share of the id map table, as measured with a million
+     * entries.
+     */
+    private static final long ENTRY_OVERHEAD = 160;
+
+    private static final Entry[] EMPTY = new Entry[0];
+
+    private final int bands;
+
+    private final int rows;
+
+    private final int bucketBits;
+
+    private final int maxBucketScan;
+
+    private final long[] seeds;
+
+    /**
+     * The sets filed in each bucket, bucket b of band n at n << bucketBits | b. Buckets hold the signatures
+     * themselves so that a lookup compares them without going through the id map.
+     */
+    private final AtomicReferenceArray<Entry[]> buckets;
+
+    private final Map<Integer, Entry> entries = new ConcurrentHashMap<>();
+
+    /**
+     * @param bands         - number of bands of the signatures
+     * @param rows          - number of hashes in each band
+     * @param bucketBits    - log2 of the number of buckets of each band
+     * @param maxBucketScan - buckets holding more sets than this are skipped by lookups; they hold the bands
+     *                      made of the most common features, which say little about similarity
+     */
+    public MinHashIndex(final int bands, final int rows, final int bucketBits, final int maxBucketScan) {
+        this.bands = bands;
+        this.rows = rows;
+        this.bucketBits = bucketBits;
+        this.maxBucketScan = maxBucketScan;
+        this.seeds = new long[bands * rows];
+        for (int i = 0; i < seeds.length; i++) {
+            seeds[i] = mix(0x9E3779B97F4A7C15L * (i + 1));
+        }
+        this.buckets = new AtomicReferenceArray<>(bands << bucketBits);
+    }
+
+    /**
+     * @param features - the set to sign
+     * @return MinHash signature of the set, or null if the set is empty
+     */
+    public byte[] signature(final Collection<String> features) {
+        if (features.isEmpty()) {
+            return null;
+        }
+        final long[] minimums = new long[seeds.length];
+        Arrays.fill(minimums, Long.MAX_VALUE);
+        for (String feature : features) {
+            final long hash = hash(feature);
+            for (int i = 0; i < seeds.length; i++) {
+                final long value = mix(hash ^ seeds[i]);
+                if (Long.compareUnsigned(value, minimums[i]) < 0) {
+                    minimums[i] = value;
+                }
+            }
+        }
+        final byte[] signature = new byte[seeds.length];
+        for (int i = 0; i < signature.length; i++) {
+            signature[i] = (byte) minimums[i];
+        }
+        return signature;
+    }
+
+    /**
+     * Add the signature under the id, replacing the signature stored for the id before.
+     */
+    public synchronized void put(final int id, final byte[] signature) {
+        remove(id);
+        final Entry entry = new Entry(id, signature);
+        for (int band = 0; band < bands; band++) {
+            final int bucket = bucket(signature, band);
+            final Entry[] filed = bucketEntries(bucket);
+            final Entry[] added = Arrays.copyOf(filed, filed.length + 1);
+            added[filed.length] = entry;
+            buckets.set(bucket, added);
+        }
+        entries.put(id, entry);
+    }
+
+    /**
+     * Remove the signature stored for the id, if any.
+     */
+    public synchronized void remove(final int id) {
+        final Entry entry = entries.remove(id);
+        if (entry == null) {
+            return;
+        }
+        for (int band = 0; band < bands; band++) {
+            final int bucket = bucket(entry.signature, band);
+            final Entry[] filed = bucketEntries(bucket);
+            for (int i = 0; i < filed.length; i++) {
+                if (filed[i] == entry) {
+                    final Entry[] removed = new Entry[filed.length - 1];
+                    System.arraycopy(filed, 0, removed, 0, i);
+                    System.arraycopy(filed, i + 1, removed, i, removed.length - i);
+                    buckets.set(bucket, removed.length == 0 ? null : removed);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * @param signature     - signature of the set to look for
+     * @param minSimilarity - lowest estimated similarity of the sets returned
+     * @param limit         - maximum number of sets
+     * @return sets sharing a band with the signature whose estimated similarity is at least minSimilarity,
+     * most similar first
+     */
+    public List<Match> find(final byte[] signature, final double minSimilarity, final int limit) {
+        if (signature == null || limit <= 0) {
+            return Collections.emptyList();
+        }
+        // A similar set is usually filed in the same bucket as the signature in several bands; comparing
+        // it again is cheaper than remembering every set compared
+        final Map<Integer, Match> found = new HashMap<>();
+        for (int band = 0; band < bands; band++) {
+            final Entry[] filed = bucketEntries(bucket(signature, band));
+            if (filed.length > maxBucketScan) {
+                continue;
+            }
+            for (Entry candidate : filed) {
+                final double similarity = similarity(signature, candidate.signature);
+                if (similarity >= minSimilarity) {
+                    found.putIfAbsent(candidate.id, new Match(candidate.id, similarity));
+                }
+            }
+        }
+        final List<Match> matches = new ArrayList<>(found.values());
+        matches.sort(Comparator.comparingDouble(Match::getSimilarity).reversed());
+        return matches.size() > limit ? new ArrayList<>(matches.subList(0, limit)) : matches;
+    }
+
+    /**
+     * @return estimated Jaccard similarity of the sets of two signatures, corrected for the bytes which are
+     * equal by chance
+     */
+    public static double similarity(final byte[] a, final byte[] b) {
+        int equal = 0;
+        for (int i = 0; i < a.length; i++) {
+            if (a[i] == b[i]) {
+                equal++;
+            }
+        }
+        final double chance = 1.0 / 256;
+        return Math.max(0, ((double) equal / a.length - chance) / (1 - chance));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @return approximate bytes taken by the index
+     */
+    public long getEstimatedBytes() {
+        final long bucketArrays = buckets.length() * 4L + Math.min(buckets.length(), (long) size() * bands) * 16;
+        return bucketArrays + size() * (ENTRY_OVERHEAD + seeds.length + 4L * bands);
+    }
+
+    private Entry[] bucketEntries(final int bucket) {
+        final Entry[] filed = buckets.get(bucket);
+        return filed == null ? EMPTY : filed;
+    }
+
+    private int bucket(final byte[] signature, final int band) {
+        long key = band;
+        for (int i = band * rows; i < (band + 1) * rows; i++) {
+            key = (key << 8) | (signature[i] & 0xFF);
+        }
+        return band << bucketBits | (int) (mix(key) >>> (64 - bucketBits));
+    }
+
+    private static long hash(final String feature) {
+        // FNV-1a over the UTF-8 bytes, spread by mix()
+        long hash = 0xCBF29CE484222325L;
+        for (byte b : feature.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * The 64-bit finalizer of MurmurHash3.
+     */
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xFF51AFD7ED558CCDL;
+        value ^= value >>> 33;
+        value *= 0xC4CEB93FE1A85EC9L;
+        value ^= value >>> 33;
+        return value;
+    }
+
+    private static final class Entry {
+
+        private final int id;
+
+        private final byte[] signature;
+
+        Entry(final int id, final byte[] signature) {
+            this.id = id;
+            this.signature = signature;
+        }
+    }
+
+    /**
+     * An indexed set and its estimated similarity to the set looked for.
+     */
+    public static final class Match {
+
+        private final int id;
+
+        private final double similarity;
+
+        Match(final int id, final double similarity) {
+            this.id = id;
+            this.similarity = similarity;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public double getSimilarity() {
+            return similarity;
+        }
+    }
+}
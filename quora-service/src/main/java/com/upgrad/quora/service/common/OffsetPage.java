@@ -0,0 +1,65 @@
+package com.upgrad.quora.service.common;
+
+import com.upgrad.quora.service.exception.InvalidCursorException;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One page of a listing which is not ordered by id, such as ranked search results, with the opaque cursor
+ * that continues the listing after the page. The cursor holds the number of rows to skip, so the cost of a
+ * page grows with its depth; listings stop issuing cursors past a maximum depth.
+ */
+public final class OffsetPage<T> {
+
+    private static final String CURSOR_PREFIX = "offset:";
+
+    private final List<T> items;
+
+    private final String nextCursor;
+
+    private OffsetPage(final List<T> items, final String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @param rows      - up to limit + 1 rows starting at offset; the extra row only tells that there is a next page
+     * @param offset    - position of the first row in the listing
+     * @param limit     - page size
+     * @param maxOffset - largest offset a next page may start at
+     * @return page of at most limit rows
+     */
+    public static <T> OffsetPage<T> of(final List<T> rows, final int offset, final int limit, final int maxOffset) {
+        if (rows.size() <= limit) {
+            return new OffsetPage<>(Collections.unmodifiableList(rows), null);
+        }
+        final List<T> items = Collections.unmodifiableList(rows.subList(0, limit));
+        final int nextOffset = offset + limit;
+        return new OffsetPage<>(items, nextOffset > maxOffset ? null : encodeCursor(nextOffset));
+    }
+
+    /**
+     * @param cursor - cursor sent by the client, may be null for the first page
+     * @return number of rows to skip, 0 for the first page
+     * @throws InvalidCursorException : PAG-001 if the cursor was not issued by OffsetPage
+     */
+    public static int decodeCursor(final String cursor) throws InvalidCursorException {
+        return CursorCodec.decode(CURSOR_PREFIX, cursor);
+    }
+
+    private static String encodeCursor(final int offset) {
+        return CursorCodec.encode(CURSOR_PREFIX, offset);
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    /**
+     * @return cursor of the next page, or null if this is the last page or the maximum depth is reached
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,103 @@
+package com.upgrad.quora.service.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ToLongFunction;
+
+/**
+ * Sorted in-memory index of values by string key, answering "the first k values whose key starts with a
+ * prefix" in O(log n + k). Keys are kept in a skip list, so lookups never block and walk only the matching
+ * range. Each value is stored under the numeric id of what it stands for, which replaces or removes it.
+ * Writes are serialized; lookups run concurrently with them.
+ */
+public final class PrefixIndex<V> {
+
+    /**
+     * Separates the key from the id in the entry key, sorting before every character of the keys so that a
+     * key sorts with the keys it is a prefix of.
+     */
+    private static final char SEPARATOR = '\u0000';
+
+    /**
+     * Approximate bytes of an entry besides its key characters and value: the skip list node and its share
+     * of index nodes, the key string, and the entry, key string and Integer of the id map.
+     */
+    private static final long ENTRY_OVERHEAD = 200;
+
+    private final ConcurrentSkipListMap<String, V> entries = new ConcurrentSkipListMap<>();
+
+    private final Map<Integer, String> entryKeys = new ConcurrentHashMap<>();
+
+    private final ToLongFunction<V> valueBytes;
+
+    private final AtomicLong estimatedBytes = new AtomicLong();
+
+    /**
+     * @param valueBytes - approximate bytes a value takes, used for {@link #getEstimatedBytes()}
+     */
+    public PrefixIndex(final ToLongFunction<V> valueBytes) {
+        this.valueBytes = valueBytes;
+    }
+
+    /**
+     * Add the value under the key, replacing the value stored for the id before.
+     */
+    public synchronized void put(final int id, final String key, final V value) {
+        remove(id);
+        final String entryKey = key + SEPARATOR + id;
+        entryKeys.put(id, entryKey);
+        entries.put(entryKey, value);
+        estimatedBytes.addAndGet(bytes(entryKey, value));
+    }
+
+    /**
+     * Remove the value stored for the id, if any.
+     */
+    public synchronized void remove(final int id) {
+        final String entryKey = entryKeys.remove(id);
+        if (entryKey != null) {
+            final V value = entries.remove(entryKey);
+            estimatedBytes.addAndGet(-bytes(entryKey, value));
+        }
+    }
+
+    /**
+     * @param prefix - prefix of the keys
+     * @param limit  - maximum number of values
+     * @return values of the first keys starting with the prefix, in key order; none if the prefix holds the
+     * separator, which would match the ids of the entry keys
+     */
+    public List<V> find(final String prefix, final int limit) {
+        if (limit <= 0 || prefix.indexOf(SEPARATOR) >= 0) {
+            return Collections.emptyList();
+        }
+        final List<V> values = new ArrayList<>(Math.min(limit, 16));
+        for (V value : entries.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            values.add(value);
+            if (values.size() == limit) {
+                break;
+            }
+        }
+        return values;
+    }
+
+    public int size() {
+        return entryKeys.size();
+    }
+
+    /**
+     * @return approximate bytes taken by the index and its values
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes.get();
+    }
+
+    private long bytes(final String entryKey, final V value) {
+        return ENTRY_OVERHEAD + 2L * entryKey.length() + (value == null ? 0 : valueBytes.applyAsLong(value));
+    }
+}
@@ -0,0 +1,83 @@
+package com.upgrad.quora.service.common;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * DataSource counting the statements executed and the result set rows read through its connections into
+ * the QueryStatistics bound to the calling thread. Connections, statements and result sets are wrapped in
+ * proxies that forward every call; a batch counts as one statement and failed statements count too.
+ * Meant for development and tests, where it makes N+1 loads visible, not for production.
+ */
+public class QueryCountingDataSource extends DelegatingDataSource {
+
+    public QueryCountingDataSource(final DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return (Connection) proxy(Connection.class, super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(final String username, final String password) throws SQLException {
+        return (Connection) proxy(Connection.class, super.getConnection(username, password));
+    }
+
+    private static Object proxy(final Class<?> type, final Object target) {
+        return Proxy.newProxyInstance(QueryCountingDataSource.class.getClassLoader(), new Class<?>[]{type},
+                new CountingHandler(target));
+    }
+
+    /**
+     * Forwards calls to the target, counting executions and rows and wrapping the statements and result
+     * sets it returns.
+     */
+    private static class CountingHandler implements InvocationHandler {
+
+        private final Object target;
+
+        private CountingHandler(final Object target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(final Object proxy, final Method method, final Object[] args) throws Throwable {
+            final String name = method.getName();
+            if (name.equals("equals")) {
+                return proxy == args[0];
+            }
+            if (name.equals("hashCode")) {
+                return System.identityHashCode(proxy);
+            }
+            final QueryStatistics statistics = QueryStatistics.current();
+            if (statistics != null && target instanceof Statement && name.startsWith("execute")) {
+                statistics.statementExecuted();
+            }
+            final Object result;
+            try {
+                result = method.invoke(target, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (statistics != null && target instanceof ResultSet && name.equals("next") && Boolean.TRUE.equals(result)) {
+                statistics.rowRead();
+            }
+            final Class<?> returnType = method.getReturnType();
+            if (result != null && (Statement.class.isAssignableFrom(returnType) || returnType == ResultSet.class)) {
+                return proxy(returnType, result);
+            }
+            return result;
+        }
+    }
+}
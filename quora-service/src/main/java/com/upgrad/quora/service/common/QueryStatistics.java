@@ -0,0 +1,82 @@
+package com.upgrad.quora.service.common;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Number of SQL statements executed and result set rows read on behalf of one unit of work, usually an
+ * HTTP request. The statistics are bound to the threads doing the work; QueryCountingDataSource adds to
+ * the statistics bound to the calling thread and ignores work done while none are bound.
+ */
+public final class QueryStatistics {
+
+    private static final ThreadLocal<QueryStatistics> CURRENT = new ThreadLocal<>();
+
+    private final AtomicLong statements = new AtomicLong();
+
+    private final AtomicLong rows = new AtomicLong();
+
+    /**
+     * @return the statistics bound to the calling thread, null if none are bound
+     */
+    public static QueryStatistics current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Bind statistics to the calling thread.
+     *
+     * @param statistics : statistics to bind
+     * @return the statistics bound before, to be passed to {@link #restore(QueryStatistics)}
+     */
+    public static QueryStatistics bind(final QueryStatistics statistics) {
+        final QueryStatistics previous = CURRENT.get();
+        CURRENT.set(statistics);
+        return previous;
+    }
+
+    /**
+     * Restore the binding of the calling thread replaced by {@link #bind(QueryStatistics)}.
+     */
+    public static void restore(final QueryStatistics previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * @param task : task to be run on another thread
+     * @return task running with the statistics bound to the calling thread, or the task itself if none are
+     */
+    public static Runnable propagate(final Runnable task) {
+        final QueryStatistics statistics = CURRENT.get();
+        if (statistics == null) {
+            return task;
+        }
+        return () -> {
+            final QueryStatistics previous = bind(statistics);
+            try {
+                task.run();
+            } finally {
+                restore(previous);
+            }
+        };
+    }
+
+    void statementExecuted() {
+        statements.incrementAndGet();
+    }
+
+    void rowRead() {
+        rows.incrementAndGet();
+    }
+
+    public long getStatements() {
+        return statements.get();
+    }
+
+    public long getRows() {
+        return rows.get();
+    }
+}
@@ -0,0 +1,81 @@
+package com.upgrad.quora.service.common;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Holder of an in-memory index which is rebuilt from the database while it keeps answering lookups, and
+ * which is kept up to date in between with the changes made through this instance.
+ * <p>
+ * A rebuild loads a new index from a snapshot taken while it runs, so a change committed during the load
+ * may or may not be in the snapshot, and the load may put back a row as it was before the change. The
+ * changes made during a rebuild are therefore recorded and applied again to the new index once it is
+ * loaded, before it replaces the current one; changes must give the same result when applied twice.
+ */
+public final class RebuildableIndex<I> {
+
+    /** The index answering lookups, null until the first build has completed. */
+    private volatile I current;
+
+    /** Whether a rebuild is loading a new index; guarded by this. */
+    private boolean building;
+
+    /** Changes made since the running rebuild started, in the order they were made; guarded by this. */
+    private final List<Consumer<I>> changes = new ArrayList<>();
+
+    /**
+     * @return the index answering lookups, or null if none has been built yet
+     */
+    public I get() {
+        return current;
+    }
+
+    /**
+     * Apply a change to the current index, and to the index being rebuilt once it is loaded.
+     */
+    public synchronized void apply(final Consumer<I> change) {
+        if (current != null) {
+            change.accept(current);
+        }
+        if (building) {
+            changes.add(change);
+        }
+    }
+
+    /**
+     * Apply a change once the surrounding transaction commits, or at once outside of a transaction.
+     */
+    public void applyAfterCommit(final Consumer<I> change) {
+        TransactionHooks.afterCommit(() -> apply(change));
+    }
+
+    /**
+     * Load a new index, apply the changes made meanwhile and make it the current index. Rebuilds must not
+     * run concurrently.
+     *
+     * @param next - the new, empty index
+     * @param load - fills the new index from the database
+     * @return the new index
+     */
+    public I rebuild(final I next, final Consumer<I> load) {
+        synchronized (this) {
+            building = true;
+        }
+        try {
+            load.accept(next);
+            synchronized (this) {
+                for (Consumer<I> change : changes) {
+                    change.accept(next);
+                }
+                current = next;
+            }
+            return next;
+        } finally {
+            synchronized (this) {
+                building = false;
+                changes.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.upgrad.quora.service.common;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-size buffer of the last values appended, each stored under the numeric id of what it stands for,
+ * which replaces or removes it. Appending past the capacity overwrites the oldest value. Writes are
+ * serialized; reads take no lock and never block: a slot is published before the count of appended values
+ * which makes it visible, and a reader skips the slots overwritten since it read that count.
+ */
+public final class RingBuffer<V> {
+
+    private final int capacity;
+
+    private final AtomicReferenceArray<Slot<V>> slots;
+
+    /** Number of values ever appended; value n is stored at slot n % capacity. */
+    private final AtomicLong appended = new AtomicLong();
+
+    /** Sequence number of the value stored for each id; guarded by this. */
+    private final Map<Integer, Long> sequences = new HashMap<>();
+
+    /**
+     * @param capacity - number of values kept
+     */
+    public RingBuffer(final int capacity) {
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Append the value as the latest one, overwriting the oldest value if the buffer is full. If a value
+     * is already stored for the id, it is replaced where it stands instead.
+     */
+    public synchronized void append(final int id, final V value) {
+        if (replace(id, value)) {
+            return;
+        }
+        final long sequence = appended.get();
+        final int slot = slot(sequence);
+        final Slot<V> overwritten = slots.get(slot);
+        if (overwritten != null) {
+            sequences.remove(overwritten.id);
+        }
+        slots.set(slot, new Slot<>(sequence, id, value));
+        sequences.put(id, sequence);
+        appended.set(sequence + 1);
+    }
+
+    /**
+     * Replace the value stored for the id, keeping its place.
+     *
+     * @return whether a value was stored for the id
+     */
+    public synchronized boolean replace(final int id, final V value) {
+        final Long sequence = sequences.get(id);
+        if (sequence == null) {
+            return false;
+        }
+        slots.set(slot(sequence), new Slot<>(sequence, id, value));
+        return true;
+    }
+
+    /**
+     * Remove the value stored for the id, if any. The slot stays empty until it is overwritten.
+     */
+    public synchronized void remove(final int id) {
+        final Long sequence = sequences.remove(id);
+        if (sequence != null) {
+            slots.set(slot(sequence), null);
+        }
+    }
+
+    /**
+     * @param limit - maximum number of values
+     * @return the values appended last, latest first
+     */
+    public List<V> latest(final int limit) {
+        if (limit <= 0) {
+            return Collections.emptyList();
+        }
+        final long end = appended.get();
+        final List<V> values = new ArrayList<>(Math.min(limit, capacity));
+        for (long sequence = end - 1; sequence >= Math.max(0, end - capacity) && values.size() < limit; sequence--) {
+            final Slot<V> slot = slots.get(slot(sequence));
+            // Empty if the value was removed, of a later sequence if appends have wrapped around meanwhile
+            if (slot != null && slot.sequence == sequence) {
+                values.add(slot.value);
+            }
+        }
+        return values;
+    }
+
+    public synchronized int size() {
+        return sequences.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    private int slot(final long sequence) {
+        return (int) (sequence % capacity);
+    }
+
+    private static final class Slot<V> {
+
+        private final long sequence;
+
+        private final int id;
+
+        private final V value;
+
+        Slot(final long sequence, final int id, final V value) {
+            this.sequence = sequence;
+            this.id = id;
+            this.value = value;
+        }
+    }
+}
@@ -0,0 +1,275 @@
+package com.upgrad.quora.service.common;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory inverted index of documents as sets of terms, finding the documents most related to a document
+ * by the cosine similarity of their term vectors, each term weighted by its inverse document frequency. A
+ * lookup only visits the documents sharing a term with the document; terms found in a large share of the
+ * documents are skipped, as they weigh little and would make the lookup visit most documents.
+ * <p>
+ * Documents are stored in slots, so that the scores of a lookup are accumulated in an array. The index is
+ * not thread-safe: writes must be serialized with every other call, while lookups, each with its own
+ * Scratch, can run in parallel between writes.
+ */
+public final class TermIndex {
+
+    /** Terms are never skipped in an index of up to this many documents. */
+    private static final int MIN_COMMON_TERM_DOCUMENTS = 1000;
+
+    private final double maxTermShare;
+
+    private final Map<String, Integer> termIds = new HashMap<>();
+
+    /** Slots of the documents holding each term, in the first postingSizes[term] elements. */
+    private int[][] postings = new int[64][];
+
+    private int[] postingSizes = new int[64];
+
+    private int[][] slotTerms = new int[64][];
+
+    private float[] slotNorms = new float[64];
+
+    private int[] slotIds = new int[64];
+
+    private int slotCount;
+
+    private final Map<Integer, Integer> slots = new HashMap<>();
+
+    private final Deque<Integer> freeSlots = new ArrayDeque<>();
+
+    /**
+     * @param maxTermShare - terms found in a larger share of the documents than this are skipped by lookups
+     */
+    public TermIndex(final double maxTermShare) {
+        this.maxTermShare = maxTermShare;
+    }
+
+    /**
+     * Add the document under the id, replacing the document stored for the id before. Its norm is computed
+     * with the document frequencies of the terms at the time; see {@link #updateNorms()}.
+     *
+     * @param id    - id of the document
+     * @param terms - terms of the document, repeated terms count once
+     */
+    public void put(final int id, final Collection<String> terms) {
+        remove(id);
+        final Set<Integer> unique = new LinkedHashSet<>();
+        for (String term : terms) {
+            unique.add(termIds.computeIfAbsent(term, t -> termIds.size()));
+        }
+        final int[] documentTerms = new int[unique.size()];
+        int i = 0;
+        for (Integer term : unique) {
+            documentTerms[i++] = term;
+        }
+        final int slot = freeSlots.isEmpty() ? slotCount++ : freeSlots.pop();
+        if (slot == slotIds.length) {
+            slotTerms = Arrays.copyOf(slotTerms, slot * 2);
+            slotNorms = Arrays.copyOf(slotNorms, slot * 2);
+            slotIds = Arrays.copyOf(slotIds, slot * 2);
+        }
+        slotTerms[slot] = documentTerms;
+        slotIds[slot] = id;
+        slots.put(id, slot);
+        for (int term : documentTerms) {
+            addPosting(term, slot);
+        }
+        slotNorms[slot] = norm(documentTerms);
+    }
+
+    /**
+     * Remove the document stored for the id, if any.
+     */
+    public void remove(final int id) {
+        final Integer slot = slots.remove(id);
+        if (slot == null) {
+            return;
+        }
+        for (int term : slotTerms[slot]) {
+            final int[] slotsOfTerm = postings[term];
+            final int size = postingSizes[term];
+            for (int i = 0; i < size; i++) {
+                if (slotsOfTerm[i] == slot) {
+                    slotsOfTerm[i] = slotsOfTerm[size - 1];
+                    postingSizes[term] = size - 1;
+                    break;
+                }
+            }
+        }
+        slotTerms[slot] = null;
+        freeSlots.push(slot);
+    }
+
+    /**
+     * Recompute the norm of every document with the current document frequencies, after a bulk load.
+     */
+    public void updateNorms() {
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (slotTerms[slot] != null) {
+                slotNorms[slot] = norm(slotTerms[slot]);
+            }
+        }
+    }
+
+    /**
+     * @param id       - id of the document
+     * @param limit    - maximum number of related documents
+     * @param minScore - lowest score of the related documents
+     * @param scratch  - working memory of the lookup, used by one thread at a time
+     * @return the documents most related to the document, or null if no document is stored for the id
+     */
+    public Related related(final int id, final int limit, final double minScore, final Scratch scratch) {
+        final Integer slot = slots.get(id);
+        if (slot == null) {
+            return null;
+        }
+        scratch.ensureCapacity(slotCount);
+        final float[] scores = scratch.scores;
+        final int[] touched = scratch.touched;
+        final int maxPostings = Math.max(MIN_COMMON_TERM_DOCUMENTS, (int) (maxTermShare * slots.size()));
+        int touchedCount = 0;
+        for (int term : slotTerms[slot]) {
+            final int size = postingSizes[term];
+            if (size > maxPostings) {
+                continue;
+            }
+            final double idf = idf(term);
+            final float weight = (float) (idf * idf);
+            final int[] slotsOfTerm = postings[term];
+            for (int i = 0; i < size; i++) {
+                final int other = slotsOfTerm[i];
+                if (other != slot) {
+                    if (scores[other] == 0) {
+                        touched[touchedCount++] = other;
+                    }
+                    scores[other] += weight;
+                }
+            }
+        }
+        final int[] bestIds = new int[limit];
+        final float[] bestScores = new float[limit];
+        int count = 0;
+        for (int i = 0; i < touchedCount; i++) {
+            final int other = touched[i];
+            final float score = scores[other] / (slotNorms[slot] * slotNorms[other]);
+            scores[other] = 0;
+            if (score < minScore || count == limit && !ranksBefore(score, slotIds[other],
+                    bestScores[limit - 1], bestIds[limit - 1])) {
+                continue;
+            }
+            // Insertion into the few best so far, most related first and the oldest first on a tie
+            int position = count < limit ? count++ : limit - 1;
+            while (position > 0 && ranksBefore(score, slotIds[other], bestScores[position - 1], bestIds[position - 1])) {
+                bestScores[position] = bestScores[position - 1];
+                bestIds[position] = bestIds[position - 1];
+                position--;
+            }
+            bestScores[position] = score;
+            bestIds[position] = slotIds[other];
+        }
+        return new Related(Arrays.copyOf(bestIds, count), Arrays.copyOf(bestScores, count));
+    }
+
+    public int size() {
+        return slots.size();
+    }
+
+    /**
+     * @return approximate bytes taken by the index
+     */
+    public long getEstimatedBytes() {
+        // A term takes its dictionary entry, String and Integer besides its postings, a document its id map
+        // entry and Integers besides its terms
+        long bytes = termIds.size() * 96L + slotCount * 12L;
+        for (int term = 0; term < termIds.size(); term++) {
+            bytes += 16 + 4L * postings[term].length;
+        }
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (slotTerms[slot] != null) {
+                bytes += 80 + 4L * slotTerms[slot].length;
+            }
+        }
+        return bytes;
+    }
+
+    private void addPosting(final int term, final int slot) {
+        if (term >= postings.length) {
+            postings = Arrays.copyOf(postings, Math.max(term + 1, postings.length * 2));
+            postingSizes = Arrays.copyOf(postingSizes, postings.length);
+        }
+        if (postings[term] == null) {
+            postings[term] = new int[2];
+        } else if (postingSizes[term] == postings[term].length) {
+            postings[term] = Arrays.copyOf(postings[term], postingSizes[term] * 2);
+        }
+        postings[term][postingSizes[term]++] = slot;
+    }
+
+    private double idf(final int term) {
+        return Math.log(1 + (double) slots.size() / Math.max(1, postingSizes[term]));
+    }
+
+    private float norm(final int[] documentTerms) {
+        double sum = 0;
+        for (int term : documentTerms) {
+            final double idf = idf(term);
+            sum += idf * idf;
+        }
+        return (float) Math.sqrt(sum);
+    }
+
+    private static boolean ranksBefore(final float score, final int id, final float otherScore, final int otherId) {
+        return score > otherScore || score == otherScore && id < otherId;
+    }
+
+    /**
+     * Working memory of a lookup: the score of every document, which lookups leave at zero.
+     */
+    public static final class Scratch {
+
+        private float[] scores = new float[0];
+
+        private int[] touched = new int[0];
+
+        private void ensureCapacity(final int slots) {
+            if (scores.length < slots) {
+                scores = new float[slots + slots / 4];
+                touched = new int[scores.length];
+            }
+        }
+    }
+
+    /**
+     * The documents most related to a document, most related first.
+     */
+    public static final class Related {
+
+        private final int[] ids;
+
+        private final float[] scores;
+
+        Related(final int[] ids, final float[] scores) {
+            this.ids = ids;
+            this.scores = scores;
+        }
+
+        public int[] getIds() {
+            return ids;
+        }
+
+        /**
+         * @return cosine similarity to each related document, from 0 to 1
+         */
+        public float[] getScores() {
+            return scores;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.upgrad.quora.service.common;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Fixed-width SHA-256 digest of an access token.
+ */
+public final class TokenDigest {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private TokenDigest() {
+    }
+
+    /**
+     * @param accessToken - access token
+     * @return 32 bytes long SHA-256 digest of the UTF-8 encoded token
+     */
+    public static byte[] sha256(final String accessToken) {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM).digest(accessToken.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new UnexpectedException(GenericErrorCode.GEN_001, e);
+        }
+    }
+}
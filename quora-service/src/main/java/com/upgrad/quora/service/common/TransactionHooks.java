@@ -0,0 +1,43 @@
+package com.upgrad.quora.service.common;
+
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Runs the in-memory side of a database change, a cache eviction or an index update, in step with the
+ * transaction of the change.
+ */
+public final class TransactionHooks {
+
+    private TransactionHooks() {
+    }
+
+    /**
+     * Run the action once the surrounding transaction commits, so that it never reflects a change which is
+     * rolled back; run it at once outside of a transaction.
+     */
+    public static void afterCommit(final Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * Run an eviction now and again once the surrounding transaction commits. Until the commit, a concurrent
+     * request still reads the rows as they were before and can cache them again; the second run removes
+     * what it cached.
+     */
+    public static void nowAndAfterCommit(final Runnable eviction) {
+        eviction.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            afterCommit(eviction);
+        }
+    }
+}
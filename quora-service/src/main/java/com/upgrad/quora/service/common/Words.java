@@ -0,0 +1,39 @@
+package com.upgrad.quora.service.common;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Splits text into words for comparing questions: runs of letters and digits, lower case and without
+ * accents.
+ */
+public final class Words {
+
+    private Words() {
+    }
+
+    /**
+     * @param text - text to split, may be null
+     * @return the words of the text in order
+     */
+    public static List<String> split(final String text) {
+        final List<String> words = new ArrayList<>();
+        if (text == null) {
+            return words;
+        }
+        final String folded = Normalizer.normalize(text, Normalizer.Form.NFKD).toLowerCase(Locale.ROOT);
+        final StringBuilder word = new StringBuilder();
+        for (int i = 0; i <= folded.length(); i++) {
+            final char c = i < folded.length() ? folded.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                word.append(c);
+            } else if (Character.getType(c) != Character.NON_SPACING_MARK && word.length() > 0) {
+                words.add(word.toString());
+                word.setLength(0);
+            }
+        }
+        return words;
+    }
+}
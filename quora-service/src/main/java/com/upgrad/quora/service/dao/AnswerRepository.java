@@ -1,14 +1,40 @@
 package com.upgrad.quora.service.dao;
 
 import com.upgrad.quora.service.entity.AnswerEntity;
-import com.upgrad.quora.service.entity.QuestionEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
 public interface AnswerRepository extends JpaRepository<AnswerEntity, Integer> {
     AnswerEntity findAnswerByUuid(String uuid);
-    List<AnswerEntity> findAllAnswerByQuestionEntity(QuestionEntity question);
+
+    /**
+     * One page of the answers to a question in the order they were posted, found by the uuid of the
+     * question. The question is left joined, so no row means that the question does not exist and a single
+     * row without answer columns means that it has no answers after the given id.
+     */
+    @Query("select a.id as id, a.uuid as uuid, a.answer as answer, q.content as questionContent"
+            + " from QuestionEntity q left join AnswerEntity a on a.questionEntity = q and a.id > :afterId"
+            + " where q.uuid = :questionUuid order by a.id")
+    List<AnswerSummary> findAnswersToQuestionAfter(@Param("questionUuid") String questionUuid,
+                                                   @Param("afterId") Integer afterId, Pageable pageable);
+
+    /**
+     * All answers to a question in id order, read from a server side cursor in batches of the fetch
+     * size. The stream must be consumed and closed within a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select a.id as id, a.uuid as uuid, a.answer as answer, q.content as questionContent"
+            + " from AnswerEntity a join a.questionEntity q where q.id = :questionId order by a.id")
+    Stream<AnswerSummary> streamAllAnswersToQuestion(@Param("questionId") Integer questionId);
 }
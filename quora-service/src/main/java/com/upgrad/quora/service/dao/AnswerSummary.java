@@ -0,0 +1,15 @@
+package com.upgrad.quora.service.dao;
+
+/**
+ * Projection of the answer columns the listings need, together with the content of the answered
+ * question, read without loading the AnswerEntity, its question or their authors.
+ */
+public interface AnswerSummary {
+    Integer getId();
+
+    String getUuid();
+
+    String getAnswer();
+
+    String getQuestionContent();
+}
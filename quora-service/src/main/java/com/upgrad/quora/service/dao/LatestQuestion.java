@@ -0,0 +1,16 @@
+package com.upgrad.quora.service.dao;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Projection of a question as listed in the feed of the latest questions.
+ */
+public interface LatestQuestion {
+    Integer getId();
+
+    String getUuid();
+
+    String getContent();
+
+    ZonedDateTime getDate();
+}
@@ -0,0 +1,47 @@
+package com.upgrad.quora.service.dao;
+
+/**
+ * Immutable copy of a question and the ids of its author, which can be kept outside of a persistence
+ * context.
+ */
+public final class QuestionDetail {
+
+    private final Integer id;
+
+    private final String uuid;
+
+    private final String content;
+
+    private final Integer userId;
+
+    private final String userUuid;
+
+    public QuestionDetail(final Integer id, final String uuid, final String content, final Integer userId,
+                          final String userUuid) {
+        this.id = id;
+        this.uuid = uuid;
+        this.content = content;
+        this.userId = userId;
+        this.userUuid = userUuid;
+    }
+
+    public Integer getId() {
+        return id;
+    }
+
+    public String getUuid() {
+        return uuid;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public Integer getUserId() {
+        return userId;
+    }
+
+    public String getUserUuid() {
+        return userUuid;
+    }
+}
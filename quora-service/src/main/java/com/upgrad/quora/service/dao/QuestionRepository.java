@@ -1,17 +1,91 @@
 package com.upgrad.quora.service.dao;
 
 import com.upgrad.quora.service.entity.QuestionEntity;
-import com.upgrad.quora.service.entity.UserEntity;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 /**
  *  QuestionRepository, used to perform CRUD operation on QuestionEntity
  */
 @Repository
-public interface QuestionRepository  extends JpaRepository<QuestionEntity, Integer> {
-    QuestionEntity findQuestionByUuid(String uuid);
-    List<QuestionEntity> findAllQuestionByUserEntity(UserEntity user);
+public interface QuestionRepository  extends JpaRepository<QuestionEntity, Integer>, QuestionRepositoryCustom {
+
+    @Query("select new com.upgrad.quora.service.dao.QuestionDetail(q.id, q.uuid, q.content, u.id, u.uuid)"
+            + " from QuestionEntity q join q.userEntity u where q.uuid = :uuid")
+    QuestionDetail findQuestionDetailByUuid(@Param("uuid") String uuid);
+
+    @Query("select q.id as id, q.uuid as uuid, q.content as content, q.answerCount as answerCount,"
+            + " q.lastAnswerAt as lastAnswerAt from QuestionEntity q"
+            + " where q.userEntity.id = :userId order by q.id")
+    List<QuestionSummary> findQuestionSummariesByUserId(@Param("userId") Integer userId);
+
+    @Query("select q.id from QuestionEntity q where q.userEntity.id = :userId")
+    List<Integer> findQuestionIdsByUserId(@Param("userId") Integer userId);
+
+    /**
+     * Keyset page of questions: the questions with an id greater than afterId in id order, walking the
+     * primary key index so that deep pages cost the same as the first one.
+     */
+    @Query("select q.id as id, q.uuid as uuid, q.content as content, q.answerCount as answerCount,"
+            + " q.lastAnswerAt as lastAnswerAt from QuestionEntity q"
+            + " where q.id > :afterId order by q.id")
+    List<QuestionSummary> findQuestionsAfter(@Param("afterId") Integer afterId, Pageable pageable);
+
+    /**
+     * The latest questions, latest first, walking the primary key index backwards.
+     */
+    @Query("select q.id as id, q.uuid as uuid, q.content as content, q.date as date from QuestionEntity q"
+            + " order by q.id desc")
+    List<LatestQuestion> findLatestQuestions(Pageable pageable);
+
+    @Query("select q.id as id, q.uuid as uuid, q.content as content, q.answerCount as answerCount,"
+            + " q.lastAnswerAt as lastAnswerAt from QuestionEntity q where q.id in :ids")
+    List<QuestionSummary> findQuestionSummariesByIds(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Ids of the questions whose content contains every word of the search terms, most relevant first. The
+     * GIN index on CONTENT_TSV finds the matching rows, which are then ranked by ts_rank.
+     */
+    @Query(value = "SELECT Q.ID FROM QUESTION Q, plainto_tsquery('pg_catalog.english', :terms) TERMS"
+            + " WHERE Q.CONTENT_TSV @@ TERMS ORDER BY ts_rank(Q.CONTENT_TSV, TERMS) DESC, Q.ID DESC"
+            + " LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<Integer> searchQuestionIds(@Param("terms") String terms, @Param("offset") int offset,
+                                    @Param("limit") int limit);
+
+    /**
+     * Questions related to a question, most related first, in one lookup of its QUESTION_RELATED row by
+     * primary key. Related questions deleted since the row was written are skipped by the join.
+     */
+    @Query(value = "SELECT Q.UUID AS uuid, Q.CONTENT AS content, CAST(ROUND(CAST(R.SCORE AS NUMERIC), 3) AS DOUBLE PRECISION) AS score"
+            + " FROM QUESTION_RELATED QR CROSS JOIN LATERAL unnest(QR.RELATED_IDS, QR.SCORES) WITH ORDINALITY"
+            + " AS R(ID, SCORE, RANK) JOIN QUESTION Q ON Q.ID = R.ID WHERE QR.QUESTION_ID = :questionId"
+            + " ORDER BY R.RANK", nativeQuery = true)
+    List<RelatedQuestion> findRelatedQuestions(@Param("questionId") Integer questionId);
+
+    /**
+     * All questions in id order, read from a server side cursor in batches of the fetch size. The
+     * stream must be consumed and closed within a transaction.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select q.id as id, q.uuid as uuid, q.content as content, q.answerCount as answerCount,"
+            + " q.lastAnswerAt as lastAnswerAt from QuestionEntity q order by q.id")
+    Stream<QuestionSummary> streamAllQuestions();
+
+    /**
+     * @return id of the last of the next batchSize questions after afterId, null if there are none
+     */
+    @Query(value = "SELECT MAX(ID) FROM (SELECT ID FROM QUESTION WHERE ID > :afterId ORDER BY ID LIMIT :batchSize) B",
+            nativeQuery = true)
+    Integer findBatchEnd(@Param("afterId") Integer afterId, @Param("batchSize") int batchSize);
 }
@@ -0,0 +1,45 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.common.TermIndex;
+
+import java.time.ZonedDateTime;
+import java.util.Map;
+
+/**
+ * Updates of the answer count and last answer time of questions and of the related questions, implemented
+ * by hand in QuestionRepositoryImpl.
+ */
+public interface QuestionRepositoryCustom {
+
+    /**
+     * Counts an answer posted to the question.
+     *
+     * @return number of updated questions
+     */
+    int recordAnswerPosted(Integer questionId, ZonedDateTime answeredAt);
+
+    /**
+     * Uncounts an answer deleted from the question. The last answer time is taken from the remaining
+     * answers, ignoring the deleted one even if its delete is not flushed yet.
+     *
+     * @return number of updated questions
+     */
+    int recordAnswerDeleted(Integer questionId, Integer answerId);
+
+    /**
+     * Recomputes the answer count and last answer time of the questions with an id in (afterId, upToId]
+     * from ANSWER. The questions are locked before they are recounted, until the end of the transaction.
+     *
+     * @return number of questions whose values were wrong
+     */
+    int reconcileAnswerStats(Integer afterId, Integer upToId);
+
+    /**
+     * Stores the related questions of each question of the map, in one statement. Questions deleted in the
+     * meantime are skipped, as are the questions whose related questions did not change.
+     *
+     * @param relatedQuestions : related questions by question id
+     * @return number of questions whose related questions were written
+     */
+    int saveRelatedQuestions(Map<Integer, TermIndex.Related> relatedQuestions);
+}
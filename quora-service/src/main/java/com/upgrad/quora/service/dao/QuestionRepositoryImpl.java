@@ -0,0 +1,127 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.common.TermIndex;
+import org.hibernate.query.NativeQuery;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.ZonedDateTime;
+import java.util.Locale;
+import java.util.Map;
+import java.util.StringJoiner;
+
+public class QuestionRepositoryImpl implements QuestionRepositoryCustom {
+
+    /**
+     * Query space of the answer columns of QUESTION. The updates below change only columns the entity does
+     * not write, so they are synchronized with this space rather than with QUESTION: Hibernate would evict
+     * the whole questions region of the second-level cache after each of them otherwise. Callers evict the
+     * questions they changed.
+     */
+    private static final String ANSWER_STATS_SPACE = "QUESTION_ANSWER_STATS";
+
+    private static final String RECORD_ANSWER_POSTED = "UPDATE QUESTION SET ANSWER_COUNT = ANSWER_COUNT + 1,"
+            + " LAST_ANSWER_AT = GREATEST(LAST_ANSWER_AT, :answeredAt) WHERE ID = :questionId";
+
+    private static final String RECORD_ANSWER_DELETED = "UPDATE QUESTION SET ANSWER_COUNT = GREATEST(ANSWER_COUNT - 1, 0),"
+            + " LAST_ANSWER_AT = (SELECT MAX(A.DATE) FROM ANSWER A WHERE A.QUESTION_ID = QUESTION.ID AND A.ID <> :answerId)"
+            + " WHERE ID = :questionId";
+
+    /**
+     * Locks the questions of a batch in id order, at the level the answer count updates take. An update that
+     * counted an answer holds its lock until the answer is committed with it, so once the locks are held a new
+     * statement sees every answer the counts of the batch include, and later updates wait for the recount.
+     */
+    private static final String LOCK_ANSWER_STATS = "SELECT ID FROM QUESTION WHERE ID > :afterId AND ID <= :upToId"
+            + " ORDER BY ID FOR NO KEY UPDATE";
+
+    private static final String RECONCILE_ANSWER_STATS = "UPDATE QUESTION Q SET ANSWER_COUNT = S.ANSWER_COUNT,"
+            + " LAST_ANSWER_AT = S.LAST_ANSWER_AT"
+            + " FROM (SELECT W.ID, COUNT(A.ID) AS ANSWER_COUNT, MAX(A.DATE) AS LAST_ANSWER_AT"
+            + " FROM QUESTION W LEFT JOIN ANSWER A ON A.QUESTION_ID = W.ID"
+            + " WHERE W.ID > :afterId AND W.ID <= :upToId GROUP BY W.ID) S"
+            + " WHERE Q.ID = S.ID AND (Q.ANSWER_COUNT <> S.ANSWER_COUNT OR Q.LAST_ANSWER_AT IS DISTINCT FROM S.LAST_ANSWER_AT)";
+
+    /** Query space of QUESTION_RELATED, which no entity maps. */
+    private static final String RELATED_SPACE = "QUESTION_RELATED";
+
+    /**
+     * The related questions are bound as arrays of array literals, unnested into one row per question; a row
+     * is only rewritten if its related questions changed, so that a recomputation leaves no dead row behind
+     * for the questions it did not change.
+     */
+    private static final String SAVE_RELATED_QUESTIONS = "INSERT INTO QUESTION_RELATED (QUESTION_ID, RELATED_IDS, SCORES)"
+            + " SELECT B.QUESTION_ID, CAST(B.RELATED_IDS AS INTEGER[]), CAST(B.SCORES AS REAL[])"
+            + " FROM unnest(CAST(:questionIds AS INTEGER[]), CAST(:relatedIds AS TEXT[]), CAST(:scores AS TEXT[]))"
+            + " AS B(QUESTION_ID, RELATED_IDS, SCORES)"
+            + " WHERE EXISTS (SELECT 1 FROM QUESTION Q WHERE Q.ID = B.QUESTION_ID)"
+            + " ON CONFLICT (QUESTION_ID) DO UPDATE SET RELATED_IDS = EXCLUDED.RELATED_IDS, SCORES = EXCLUDED.SCORES,"
+            + " COMPUTED_AT = CURRENT_TIMESTAMP"
+            + " WHERE QUESTION_RELATED.RELATED_IDS <> EXCLUDED.RELATED_IDS OR QUESTION_RELATED.SCORES <> EXCLUDED.SCORES";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public int recordAnswerPosted(final Integer questionId, final ZonedDateTime answeredAt) {
+        return update(RECORD_ANSWER_POSTED)
+                .setParameter("answeredAt", answeredAt)
+                .setParameter("questionId", questionId)
+                .executeUpdate();
+    }
+
+    @Override
+    public int recordAnswerDeleted(final Integer questionId, final Integer answerId) {
+        return update(RECORD_ANSWER_DELETED)
+                .setParameter("answerId", answerId)
+                .setParameter("questionId", questionId)
+                .executeUpdate();
+    }
+
+    @Override
+    public int reconcileAnswerStats(final Integer afterId, final Integer upToId) {
+        entityManager.createNativeQuery(LOCK_ANSWER_STATS)
+                .setParameter("afterId", afterId)
+                .setParameter("upToId", upToId)
+                .getResultList();
+        return update(RECONCILE_ANSWER_STATS)
+                .setParameter("afterId", afterId)
+                .setParameter("upToId", upToId)
+                .executeUpdate();
+    }
+
+    @Override
+    public int saveRelatedQuestions(final Map<Integer, TermIndex.Related> relatedQuestions) {
+        if (relatedQuestions.isEmpty()) {
+            return 0;
+        }
+        final StringJoiner questionIds = new StringJoiner(",", "{", "}");
+        final StringJoiner relatedIds = new StringJoiner(",", "{", "}");
+        final StringJoiner scores = new StringJoiner(",", "{", "}");
+        for (Map.Entry<Integer, TermIndex.Related> entry : relatedQuestions.entrySet()) {
+            final TermIndex.Related related = entry.getValue();
+            final StringJoiner ids = new StringJoiner(",", "\"{", "}\"");
+            final StringJoiner values = new StringJoiner(",", "\"{", "}\"");
+            for (int i = 0; i < related.getIds().length; i++) {
+                ids.add(Integer.toString(related.getIds()[i]));
+                values.add(String.format(Locale.ROOT, "%.3f", related.getScores()[i]));
+            }
+            questionIds.add(entry.getKey().toString());
+            relatedIds.add(ids.toString());
+            scores.add(values.toString());
+        }
+        return entityManager.createNativeQuery(SAVE_RELATED_QUESTIONS)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(RELATED_SPACE)
+                .setParameter("questionIds", questionIds.toString())
+                .setParameter("relatedIds", relatedIds.toString())
+                .setParameter("scores", scores.toString())
+                .executeUpdate();
+    }
+
+    private NativeQuery<?> update(final String sql) {
+        return entityManager.createNativeQuery(sql)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedQuerySpace(ANSWER_STATS_SPACE);
+    }
+}
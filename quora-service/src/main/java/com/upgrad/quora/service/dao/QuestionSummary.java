@@ -0,0 +1,22 @@
+package com.upgrad.quora.service.dao;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Projection of the question columns the listings need, read without loading the QuestionEntity or its
+ * author.
+ */
+public interface QuestionSummary {
+    Integer getId();
+
+    String getUuid();
+
+    String getContent();
+
+    Integer getAnswerCount();
+
+    /**
+     * @return time the latest answer was posted, null if the question has no answers
+     */
+    ZonedDateTime getLastAnswerAt();
+}
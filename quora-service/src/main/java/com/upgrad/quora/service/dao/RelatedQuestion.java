@@ -0,0 +1,15 @@
+package com.upgrad.quora.service.dao;
+
+/**
+ * Projection of a question related to another one, read from QUESTION_RELATED.
+ */
+public interface RelatedQuestion {
+    String getUuid();
+
+    String getContent();
+
+    /**
+     * @return how related the question is, from 0 to 1
+     */
+    Double getScore();
+}
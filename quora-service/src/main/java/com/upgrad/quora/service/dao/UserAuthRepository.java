@@ -2,9 +2,24 @@ package com.upgrad.quora.service.dao;
 
 import com.upgrad.quora.service.entity.UserAuthEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 @Repository
-public interface  UserAuthRepository extends JpaRepository<UserAuthEntity, Integer> {
-    UserAuthEntity findByAccessToken(String accessToken);
-}
\ No newline at end of file
+public interface  UserAuthRepository extends JpaRepository<UserAuthEntity, Integer>, UserAuthRepositoryCustom {
+    UserAuthEntity findByAccessTokenDigest(byte[] accessTokenDigest);
+
+    /**
+     * Streams (id, access token digest) pairs. The id is selected as well because Hibernate's scrollable
+     * results cannot return a single byte[] column.
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.id, u.accessTokenDigest from UserAuthEntity u")
+    Stream<Object[]> streamAllAccessTokenDigests();
+}
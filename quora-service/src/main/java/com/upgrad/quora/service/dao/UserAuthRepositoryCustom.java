@@ -0,0 +1,16 @@
+package com.upgrad.quora.service.dao;
+
+import java.time.LocalDateTime;
+
+/**
+ * Queries of UserAuthRepository which are implemented by hand in UserAuthRepositoryImpl.
+ */
+public interface UserAuthRepositoryCustom {
+
+    /**
+     * Deletes up to batchSize sessions which expired or were signed out before the cutoff.
+     *
+     * @return number of deleted sessions
+     */
+    int deleteEndedSessions(LocalDateTime cutoff, int batchSize);
+}
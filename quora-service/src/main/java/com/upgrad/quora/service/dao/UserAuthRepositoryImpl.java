@@ -0,0 +1,31 @@
+package com.upgrad.quora.service.dao;
+
+import com.upgrad.quora.service.entity.UserAuthEntity;
+import org.hibernate.query.NativeQuery;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.LocalDateTime;
+
+public class UserAuthRepositoryImpl implements UserAuthRepositoryCustom {
+
+    private static final String DELETE_ENDED_SESSIONS = "DELETE FROM USER_AUTH WHERE ID IN (SELECT ID FROM USER_AUTH"
+            + " WHERE EXPIRES_AT < :cutoff OR LOGOUT_AT < :cutoff LIMIT :batchSize)";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    /**
+     * The delete is declared to touch USER_AUTH only. Hibernate cannot tell which tables a native update
+     * changes and would otherwise evict every region of the second-level cache on each sweep.
+     */
+    @Override
+    public int deleteEndedSessions(final LocalDateTime cutoff, final int batchSize) {
+        return entityManager.createNativeQuery(DELETE_ENDED_SESSIONS)
+                .unwrap(NativeQuery.class)
+                .addSynchronizedEntityClass(UserAuthEntity.class)
+                .setParameter("cutoff", cutoff)
+                .setParameter("batchSize", batchSize)
+                .executeUpdate();
+    }
+}
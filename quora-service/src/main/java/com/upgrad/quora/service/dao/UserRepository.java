@@ -2,13 +2,54 @@ package com.upgrad.quora.service.dao;
 
 import com.upgrad.quora.service.entity.UserEntity;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_CACHE_REGION;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
 @Repository
 public interface UserRepository extends JpaRepository<UserEntity, Integer> {
+    String USER_BY_UUID_REGION = "quora-user-by-uuid";
+
     UserEntity findByUserName(String userName);
 
     UserEntity findByEmail(String email);
 
+    /**
+     * Cached: the query cache keeps the id of the user, whose row is then read from the users region.
+     */
+    @QueryHints({@QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_CACHE_REGION, value = USER_BY_UUID_REGION)})
     UserEntity findByUuid(String uuid);
+
+    /**
+     * Reads the row from the database rather than the second-level cache and locks it until the end of the
+     * transaction.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select u from UserEntity u where u.id = :id")
+    UserEntity findByIdForUpdate(@Param("id") Integer id);
+
+    @Query("select u.id from UserEntity u where u.uuid = :uuid")
+    Integer findIdByUuid(@Param("uuid") String uuid);
+
+    /**
+     * @return (username, email) of the users holding the username or the email
+     */
+    @Query("select u.userName, u.email from UserEntity u where u.userName = :userName or u.email = :email")
+    List<Object[]> findUserNamesAndEmails(@Param("userName") String userName, @Param("email") String email);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.userName, u.email from UserEntity u")
+    Stream<Object[]> streamAllUserNamesAndEmails();
 }
@@ -1,7 +1,6 @@
 package com.upgrad.quora.service.entity;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.hibernate.annotations.OnDelete;
@@ -93,14 +92,27 @@ public class AnswerEntity {
         this.questionEntity = questionEntity;
     }
 
+    /**
+     * Answers are equal when they have the same uuid.
+     */
     @Override
     public boolean equals(Object obj) {
-        return new EqualsBuilder().append(this, obj).isEquals();
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof AnswerEntity) || uuid == null) {
+            return false;
+        }
+        return new EqualsBuilder().append(uuid, ((AnswerEntity) obj).getUuid()).isEquals();
     }
 
+    /**
+     * The same for every answer. An answer gets its uuid after it is created and its id when it is
+     * persisted; a hash code computed from either would change under an answer held in a hash set.
+     */
     @Override
     public int hashCode() {
-        return new HashCodeBuilder().append(this).hashCode();
+        return AnswerEntity.class.hashCode();
     }
 
     @Override
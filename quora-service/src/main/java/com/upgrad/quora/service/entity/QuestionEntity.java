@@ -1,9 +1,10 @@
 package com.upgrad.quora.service.entity;
 
 import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.OnDelete;
 import org.hibernate.annotations.OnDeleteAction;
 
@@ -15,7 +16,8 @@ import java.time.ZonedDateTime;
 
 @Entity
 @Table(name = "question")
-
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "quora-questions")
 public class QuestionEntity implements Serializable {
 
     @Id
@@ -41,6 +43,16 @@ public class QuestionEntity implements Serializable {
     @JoinColumn(name = "user_id")
     private UserEntity userEntity;
 
+    /**
+     * Maintained by QuestionRepository with atomic updates as answers are posted and deleted, never written
+     * through the entity. The copy in the second-level cache is evicted after each update.
+     */
+    @Column(name = "answer_count", insertable = false, updatable = false)
+    private Integer answerCount = 0;
+
+    @Column(name = "last_answer_at", insertable = false, updatable = false)
+    private ZonedDateTime lastAnswerAt;
+
     public Integer getId() {
         return id;
     }
@@ -81,14 +93,35 @@ public class QuestionEntity implements Serializable {
         this.userEntity = userEntity;
     }
 
-    @Override
-    public int hashCode() {
-        return new HashCodeBuilder().append(this).hashCode();
+    public Integer getAnswerCount() {
+        return answerCount;
     }
 
+    public ZonedDateTime getLastAnswerAt() {
+        return lastAnswerAt;
+    }
+
+    /**
+     * Questions are equal when they have the same uuid. The uuid is compared through the getter so that a
+     * lazy proxy compares like the question it stands for.
+     */
     @Override
     public boolean equals(Object obj) {
-        return new EqualsBuilder().append(this, obj).isEquals();
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof QuestionEntity) || uuid == null) {
+            return false;
+        }
+        return new EqualsBuilder().append(uuid, ((QuestionEntity) obj).getUuid()).isEquals();
+    }
+
+    /**
+     * The same for every question, so that it does not change when the uuid or the id is assigned.
+     */
+    @Override
+    public int hashCode() {
+        return QuestionEntity.class.hashCode();
     }
 
     @Override
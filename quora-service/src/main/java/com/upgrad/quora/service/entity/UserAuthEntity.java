@@ -1,7 +1,7 @@
 package com.upgrad.quora.service.entity;
 
+import com.upgrad.quora.service.common.TokenDigest;
 import org.apache.commons.lang3.builder.EqualsBuilder;
-import org.apache.commons.lang3.builder.HashCodeBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.hibernate.annotations.OnDelete;
@@ -16,8 +16,8 @@ import java.time.ZonedDateTime;
 @Table(name = "user_auth")
 @NamedQueries({
         @NamedQuery(
-                name = "userAuthByAccessToken",
-                query = "select u from UserAuthEntity u where u.accessToken=:accessToken")
+                name = "userAuthByAccessTokenDigest",
+                query = "select u from UserAuthEntity u where u.accessTokenDigest=:accessTokenDigest")
 })
 public class UserAuthEntity {
 
@@ -41,6 +41,11 @@ public class UserAuthEntity {
     @Size(max = 500)
     private String accessToken;
 
+    /** SHA-256 digest of the access token, the indexed fixed-width key sessions are looked up by. */
+    @Column(name = "access_token_digest")
+    @NotNull
+    private byte[] accessTokenDigest;
+
     @Column(name = "expires_at")
     @NotNull
     private ZonedDateTime expiresAt;
@@ -82,6 +87,11 @@ public class UserAuthEntity {
 
     public void setAccessToken(String accessToken) {
         this.accessToken = accessToken;
+        this.accessTokenDigest = accessToken == null ? null : TokenDigest.sha256(accessToken);
+    }
+
+    public byte[] getAccessTokenDigest() {
+        return accessTokenDigest;
     }
 
     public ZonedDateTime getExpiresAt() {
@@ -108,14 +118,27 @@ public class UserAuthEntity {
         this.logoutAt = logoutAt;
     }
 
+    /**
+     * Sessions are equal when they have the same uuid.
+     */
     @Override
     public boolean equals(Object obj) {
-        return new EqualsBuilder().append(this, obj).isEquals();
-    }
-
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof UserAuthEntity) || uuid == null) {
+            return false;
+        }
+        return new EqualsBuilder().append(uuid, ((UserAuthEntity) obj).getUuid()).isEquals();
+    }
+
+    /**
+     * The same for every session. A session gets its uuid after it is created and its id when it is persisted,
+     * and a session in a hash set must keep its hash code while it is persisted or merged.
+     */
     @Override
     public int hashCode() {
-        return new HashCodeBuilder().append(this).hashCode();
+        return UserAuthEntity.class.hashCode();
     }
 
     @Override
@@ -1,11 +1,17 @@
 package com.upgrad.quora.service.entity;
 
+import org.apache.commons.lang3.builder.EqualsBuilder;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
 
 @Entity
 @Table(name = "users")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "quora-users")
 public class UserEntity {
     @Id
     @Column(name = "id")
@@ -172,4 +178,28 @@ public class UserEntity {
     public void setContactNumber(String contactNumber) {
         this.contactNumber = contactNumber;
     }
+
+    /**
+     * Users are equal when they have the same uuid.
+     */
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof UserEntity) || uuid == null) {
+            return false;
+        }
+        return new EqualsBuilder().append(uuid, ((UserEntity) obj).getUuid()).isEquals();
+    }
+
+    /**
+     * The same for every user. The sign-up sets the uuid after creating the entity and the insert assigns the
+     * id; the hash code of a user held in a hash set must change with neither, nor when a detached user is
+     * merged.
+     */
+    @Override
+    public int hashCode() {
+        return UserEntity.class.hashCode();
+    }
 }
@@ -0,0 +1,127 @@
+package com.upgrad.quora.service.common;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Measures the similar question lookup of MinHashIndex, with the parameters of SimilarQuestions, over
+ * synthetic questions of 6 to 15 words drawn from a Zipf vocabulary of 20000 words. Prints the time and heap
+ * taken to index the questions, the latency of lookups alternating near duplicates (one word replaced) and
+ * new questions, the share of near duplicates found, and the time to update an entry. Not run by the build:
+ * <pre>
+ * mvn -B test-compile
+ * java -Xmx4g -cp quora-service/target/classes:quora-service/target/test-classes \
+ *     com.upgrad.quora.service.common.MinHashIndexBenchmark [questions, 1000000] [max bucket scan, 1024]
+ * </pre>
+ */
+public final class MinHashIndexBenchmark {
+
+    private static final int VOCABULARY = 20000;
+
+    private static final int LOOKUPS = 20000;
+
+    private static final int UPDATES = 10000;
+
+    private final Random random = new Random(7);
+
+    private final double[] cumulativeWeights = new double[VOCABULARY];
+
+    private MinHashIndexBenchmark() {
+        // Word k is drawn with a probability proportional to 1 / (k + 1)
+        double total = 0;
+        for (int k = 0; k < VOCABULARY; k++) {
+            total += 1.0 / (k + 1);
+            cumulativeWeights[k] = total;
+        }
+    }
+
+    public static void main(final String[] args) {
+        final int questions = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        final int maxBucketScan = args.length > 1 ? Integer.parseInt(args[1]) : 1024;
+        new MinHashIndexBenchmark().run(questions, maxBucketScan);
+    }
+
+    private void run(final int questionCount, final int maxBucketScan) {
+        final String[][] questions = new String[questionCount][];
+        for (int i = 0; i < questionCount; i++) {
+            questions[i] = question();
+        }
+
+        final Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        final long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+        final MinHashIndex index = new MinHashIndex(16, 3, 16, maxBucketScan);
+        final long buildStarted = System.nanoTime();
+        for (int i = 0; i < questionCount; i++) {
+            index.put(i, index.signature(features(questions[i])));
+        }
+        final long buildNanos = System.nanoTime() - buildStarted;
+        System.gc();
+        final long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+        System.out.printf("%d questions indexed in %d ms, heap %d MB, estimated %d MB%n", questionCount,
+                buildNanos / 1_000_000, (heapAfter - heapBefore) >> 20, index.getEstimatedBytes() >> 20);
+
+        // The first round warms up the JIT, the second is measured
+        final long[] latencies = new long[LOOKUPS];
+        int nearDuplicatesFound = 0;
+        for (int round = 0; round < 2; round++) {
+            nearDuplicatesFound = 0;
+            for (int i = 0; i < LOOKUPS; i++) {
+                final boolean nearDuplicate = i % 2 == 0;
+                final String[] question;
+                if (nearDuplicate) {
+                    question = questions[random.nextInt(questionCount)].clone();
+                    question[random.nextInt(question.length)] = "w" + random.nextInt(VOCABULARY);
+                } else {
+                    question = question();
+                }
+                final long started = System.nanoTime();
+                final List<MinHashIndex.Match> matches = index.find(index.signature(features(question)), 0.45, 10);
+                latencies[i] = System.nanoTime() - started;
+                if (nearDuplicate && !matches.isEmpty()) {
+                    nearDuplicatesFound++;
+                }
+            }
+        }
+        Arrays.sort(latencies);
+        System.out.printf("Lookup p50 %.1f us, p99 %.1f us, max %.1f us, near duplicates found %.3f%n",
+                latencies[LOOKUPS / 2] / 1e3, latencies[LOOKUPS * 99 / 100] / 1e3, latencies[LOOKUPS - 1] / 1e3,
+                nearDuplicatesFound / (LOOKUPS / 2.0));
+
+        final int updates = Math.min(UPDATES, questionCount);
+        final long updateStarted = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            index.put(i, index.signature(features(questions[i])));
+        }
+        System.out.printf("Update %.1f us%n", (System.nanoTime() - updateStarted) / 1e3 / updates);
+    }
+
+    private String[] question() {
+        final String[] words = new String[6 + random.nextInt(10)];
+        for (int i = 0; i < words.length; i++) {
+            final int k = Arrays.binarySearch(cumulativeWeights,
+                    random.nextDouble() * cumulativeWeights[VOCABULARY - 1]);
+            words[i] = "w" + (k < 0 ? -k - 1 : k);
+        }
+        return words;
+    }
+
+    /**
+     * @return the words and each pair of consecutive words, as SimilarQuestions compares questions
+     */
+    private static Set<String> features(final String[] words) {
+        final Set<String> features = new HashSet<>();
+        String previous = null;
+        for (String word : words) {
+            features.add(word);
+            if (previous != null) {
+                features.add(previous + ' ' + word);
+            }
+            previous = word;
+        }
+        return features;
+    }
+}
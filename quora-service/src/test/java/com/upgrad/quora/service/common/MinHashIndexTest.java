@@ -0,0 +1,141 @@
+package com.upgrad.quora.service.common;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MinHashIndexTest {
+
+    private static final int PAIRS = 500;
+
+    private final Random random = new Random(7);
+
+    //This test case passes when sets of similarity 0.6 share a band nearly as often as 1 - (1 - 0.6^3)^16 = 98%.
+    @Test
+    public void findSimilarSetsThroughBands() {
+        final MinHashIndex index = new MinHashIndex(16, 3, 16, 1024);
+        final int found = countFoundPairs(index, 12, 4);
+        assertTrue(found + " of " + PAIRS + " pairs found", found >= PAIRS * 0.95);
+    }
+
+    //This test case passes when sets of similarity 0.1 rarely share a band, about 1 - (1 - 0.1^3)^16 = 2% of the time.
+    @Test
+    public void skipDissimilarSets() {
+        final MinHashIndex index = new MinHashIndex(16, 3, 16, 1024);
+        final int found = countFoundPairs(index, 2, 9);
+        assertTrue(found + " of " + PAIRS + " pairs found", found <= PAIRS * 0.05);
+    }
+
+    //This test case passes when the sets found are ordered by estimated similarity and filtered by the minimum.
+    @Test
+    public void findMostSimilarFirst() {
+        final MinHashIndex index = new MinHashIndex(16, 3, 16, 1024);
+        final Set<String> features = features("base", 20);
+        index.put(1, index.signature(withReplaced(features, 6)));
+        index.put(2, index.signature(features));
+        index.put(3, index.signature(withReplaced(features, 1)));
+
+        final List<MinHashIndex.Match> matches = index.find(index.signature(features), 0, 10);
+        assertEquals(3, matches.size());
+        assertEquals(2, matches.get(0).getId());
+        assertEquals(1.0, matches.get(0).getSimilarity(), 0);
+        assertEquals(3, matches.get(1).getId());
+        assertEquals(1, matches.get(2).getId());
+
+        assertEquals(1, index.find(index.signature(features), 0.99, 10).size());
+        assertEquals(2, index.find(index.signature(features), 0, 2).size());
+    }
+
+    //This test case passes when buckets holding more sets than the cap are skipped, however similar their sets are.
+    @Test
+    public void skipBucketsAboveCap() {
+        final byte[] signature = new MinHashIndex(16, 3, 16, 2).signature(features("common", 10));
+        final MinHashIndex capped = new MinHashIndex(16, 3, 16, 2);
+        final MinHashIndex uncapped = new MinHashIndex(16, 3, 16, 3);
+        for (int id = 1; id <= 3; id++) {
+            capped.put(id, signature);
+            uncapped.put(id, signature);
+        }
+
+        assertEquals(Collections.emptyList(), capped.find(signature, 0, 10));
+        assertEquals(3, uncapped.find(signature, 0, 10).size());
+
+        capped.remove(3);
+        assertEquals(2, capped.find(signature, 0, 10).size());
+    }
+
+    //This test case passes when removed and replaced sets are no longer found under their old signature.
+    @Test
+    public void removeAndReplace() {
+        final MinHashIndex index = new MinHashIndex(16, 3, 16, 1024);
+        final byte[] first = index.signature(features("first", 10));
+        final byte[] second = index.signature(features("second", 10));
+        index.put(1, first);
+        index.put(2, first);
+        index.put(2, second);
+        index.remove(1);
+        index.remove(1);
+
+        assertEquals(Collections.emptyList(), index.find(first, 0.5, 10));
+        assertEquals(2, index.find(second, 0.5, 10).get(0).getId());
+        assertEquals(1, index.size());
+        assertNull(index.signature(Collections.emptySet()));
+        assertEquals(Collections.emptyList(), index.find(null, 0, 10));
+    }
+
+    /**
+     * Indexes one set of each of PAIRS pairs, and looks the other one up.
+     *
+     * @param shared - features in both sets of a pair
+     * @param own    - features in only one set of a pair
+     * @return number of pairs found
+     */
+    private int countFoundPairs(final MinHashIndex index, final int shared, final int own) {
+        for (int pair = 0; pair < PAIRS; pair++) {
+            final Set<String> features = features("pair" + pair + "-", shared + own);
+            index.put(pair, index.signature(features));
+        }
+        int found = 0;
+        for (int pair = 0; pair < PAIRS; pair++) {
+            final Set<String> other = withReplaced(features("pair" + pair + "-", shared + own), own);
+            for (MinHashIndex.Match match : index.find(index.signature(other), 0, PAIRS)) {
+                if (match.getId() == pair) {
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+    private static Set<String> features(final String prefix, final int count) {
+        final Set<String> features = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            features.add(prefix + i);
+        }
+        return features;
+    }
+
+    /**
+     * @return the features with the given number of them replaced by features of no other set
+     */
+    private Set<String> withReplaced(final Set<String> features, final int replaced) {
+        final Set<String> copy = new HashSet<>(features);
+        int removed = 0;
+        for (String feature : features) {
+            if (removed++ == replaced) {
+                break;
+            }
+            copy.remove(feature);
+            copy.add("other" + random.nextLong());
+        }
+        return copy;
+    }
+}
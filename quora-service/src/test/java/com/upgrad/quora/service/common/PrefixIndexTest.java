@@ -0,0 +1,75 @@
+package com.upgrad.quora.service.common;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+
+public class PrefixIndexTest {
+
+    private final PrefixIndex<String> index = new PrefixIndex<>(String::length);
+
+    //This test case passes when a key equal to the prefix is found before the longer keys starting with it.
+    @Test
+    public void findKeyEqualToPrefixFirst() {
+        index.put(1, "abcd", "abcd");
+        index.put(2, "abc d", "abc d");
+        index.put(3, "abc", "abc");
+
+        assertEquals(Arrays.asList("abc", "abc d", "abcd"), index.find("abc", 10));
+    }
+
+    //This test case passes when the keys just outside the prefix are left out on both sides.
+    @Test
+    public void findOnlyKeysStartingWithPrefix() {
+        index.put(1, "ab", "ab");
+        index.put(2, "abb", "abb");
+        index.put(3, "abc", "abc");
+        index.put(4, "abcz", "abcz");
+        index.put(5, "abd", "abd");
+
+        assertEquals(Arrays.asList("abc", "abcz"), index.find("abc", 10));
+        assertEquals(Collections.emptyList(), index.find("abca", 10));
+    }
+
+    //This test case passes when equal keys of different ids are both found, and the id never matches a prefix.
+    @Test
+    public void findEqualKeysOfDifferentIds() {
+        index.put(12, "abc", "first");
+        index.put(3, "abc", "second");
+
+        assertEquals(2, index.find("abc", 10).size());
+        assertEquals(Collections.emptyList(), index.find("abc1", 10));
+        assertEquals(Collections.emptyList(), index.find("abc\u00001", 10));
+    }
+
+    //This test case passes when the values found are cut to the limit, in key order.
+    @Test
+    public void findUpToLimit() {
+        index.put(1, "ac", "ac");
+        index.put(2, "ab", "ab");
+        index.put(3, "aa", "aa");
+
+        assertEquals(Arrays.asList("aa", "ab"), index.find("a", 2));
+        assertEquals(Collections.emptyList(), index.find("a", 0));
+    }
+
+    //This test case passes when putting a value for an id replaces its previous key, and removing it frees it.
+    @Test
+    public void putReplacesAndRemoveDeletes() {
+        index.put(1, "old", "old");
+        index.put(1, "new", "new");
+
+        assertEquals(Collections.emptyList(), index.find("old", 10));
+        assertEquals(Collections.singletonList("new"), index.find("new", 10));
+        assertEquals(1, index.size());
+
+        index.remove(1);
+        index.remove(1);
+        assertEquals(Collections.emptyList(), index.find("", 10));
+        assertEquals(0, index.size());
+        assertEquals(0, index.getEstimatedBytes());
+    }
+}
@@ -0,0 +1,122 @@
+package com.upgrad.quora.service.common;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class RingBufferTest {
+
+    private final RingBuffer<String> buffer = new RingBuffer<>(3);
+
+    //This test case passes when appending past the capacity overwrites the oldest values.
+    @Test
+    public void overwriteOldestOnWrapAround() {
+        for (int id = 1; id <= 5; id++) {
+            buffer.append(id, "v" + id);
+        }
+
+        assertEquals(Arrays.asList("v5", "v4", "v3"), buffer.latest(10));
+        assertEquals(Arrays.asList("v5", "v4"), buffer.latest(2));
+        assertEquals(Collections.emptyList(), buffer.latest(0));
+        assertEquals(3, buffer.size());
+    }
+
+    //This test case passes when an overwritten id is appended again as a new value instead of replaced.
+    @Test
+    public void appendOverwrittenIdAsNew() {
+        for (int id = 1; id <= 4; id++) {
+            buffer.append(id, "v" + id);
+        }
+        buffer.append(1, "again");
+
+        assertEquals(Arrays.asList("again", "v4", "v3"), buffer.latest(10));
+    }
+
+    //This test case passes when a replaced value keeps its place, and appending a stored id replaces it.
+    @Test
+    public void replaceInPlace() {
+        buffer.append(1, "v1");
+        buffer.append(2, "v2");
+        buffer.append(3, "v3");
+
+        assertTrue(buffer.replace(2, "new2"));
+        buffer.append(1, "new1");
+        assertEquals(Arrays.asList("v3", "new2", "new1"), buffer.latest(10));
+        assertFalse(buffer.replace(4, "v4"));
+    }
+
+    //This test case passes when a removed value leaves a gap that the next appends overwrite.
+    @Test
+    public void removeLeavesGap() {
+        buffer.append(1, "v1");
+        buffer.append(2, "v2");
+        buffer.append(3, "v3");
+        buffer.remove(2);
+        buffer.remove(2);
+
+        assertEquals(Arrays.asList("v3", "v1"), buffer.latest(10));
+        assertEquals(2, buffer.size());
+
+        buffer.append(4, "v4");
+        buffer.append(5, "v5");
+        assertEquals(Arrays.asList("v5", "v4", "v3"), buffer.latest(10));
+        assertEquals(3, buffer.size());
+    }
+
+    //This test case passes when readers racing a writer that wraps around always see the latest values in order.
+    @Test
+    public void readWhileWriting() throws InterruptedException {
+        final RingBuffer<Integer> values = new RingBuffer<>(64);
+        final AtomicBoolean stopped = new AtomicBoolean();
+        final AtomicReference<String> failure = new AtomicReference<>();
+        final AtomicLong reads = new AtomicLong();
+        final List<Thread> readers = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final Thread reader = new Thread(() -> {
+                while (!stopped.get()) {
+                    // Values equal their ids, which are appended in increasing order
+                    final List<Integer> latest = values.latest(50);
+                    for (int j = 1; j < latest.size(); j++) {
+                        if (latest.get(j) >= latest.get(j - 1)) {
+                            failure.compareAndSet(null, "Out of order: " + latest);
+                        }
+                    }
+                    if (latest.size() > 50) {
+                        failure.compareAndSet(null, "Over the limit: " + latest);
+                    }
+                    reads.incrementAndGet();
+                }
+            });
+            reader.start();
+            readers.add(reader);
+        }
+        for (int id = 0; id < 1_000_000; id++) {
+            values.append(id, id);
+            if (id % 7 == 0) {
+                values.remove(id - 3);
+            }
+            if (id % 11 == 0) {
+                values.replace(id - 5, id - 5);
+            }
+        }
+        stopped.set(true);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+
+        assertNull(failure.get());
+        assertTrue(reads.get() > 0);
+        assertEquals(Arrays.asList(999_999, 999_998, 999_997), values.latest(3));
+    }
+}
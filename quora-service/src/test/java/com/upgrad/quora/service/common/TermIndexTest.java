@@ -0,0 +1,82 @@
+package com.upgrad.quora.service.common;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class TermIndexTest {
+
+    private final TermIndex index = new TermIndex(0.01);
+
+    private final TermIndex.Scratch scratch = new TermIndex.Scratch();
+
+    //This test case passes when the documents sharing more and rarer terms come first, and equal scores by id.
+    @Test
+    public void relatedInScoreOrder() {
+        index.put(1, Arrays.asList("a", "b", "c", "d"));
+        index.put(2, Arrays.asList("a", "b", "c", "x"));
+        index.put(3, Arrays.asList("a", "y"));
+        index.put(5, Arrays.asList("d", "z"));
+        index.put(4, Arrays.asList("d", "z"));
+        index.updateNorms();
+
+        final TermIndex.Related related = index.related(1, 10, 0, scratch);
+        assertArrayEquals(new int[]{2, 4, 5, 3}, related.getIds());
+        final float[] scores = related.getScores();
+        assertTrue(Arrays.toString(scores), scores[0] > scores[1] && scores[1] == scores[2] && scores[2] > scores[3]);
+        assertTrue(Arrays.toString(scores), scores[0] <= 1);
+
+        assertArrayEquals(new int[]{2, 4}, index.related(1, 2, 0, scratch).getIds());
+        assertArrayEquals(new int[]{2}, index.related(1, 10, scores[1] + 0.01, scratch).getIds());
+    }
+
+    //This test case passes when a removed document is no longer related, and its slot is reused by the next one.
+    @Test
+    public void reuseSlotAfterRemove() {
+        index.put(1, Arrays.asList("a", "b"));
+        index.put(2, Arrays.asList("a", "c"));
+        index.put(3, Arrays.asList("b", "c"));
+        final long bytes = index.getEstimatedBytes();
+
+        index.remove(2);
+        index.remove(2);
+        assertNull(index.related(2, 10, 0, scratch));
+        assertArrayEquals(new int[]{3}, index.related(1, 10, 0, scratch).getIds());
+
+        // Same terms, so only the reused slot keeps the size of the index unchanged
+        index.put(4, Arrays.asList("a", "c"));
+        assertEquals(bytes, index.getEstimatedBytes());
+        assertEquals(3, index.size());
+        assertArrayEquals(new int[]{3, 4}, index.related(1, 10, 0, scratch).getIds());
+        assertArrayEquals(new int[]{1, 3}, index.related(4, 10, 0, scratch).getIds());
+    }
+
+    //This test case passes when putting a document again replaces its terms instead of adding to them.
+    @Test
+    public void putReplacesTerms() {
+        index.put(1, Arrays.asList("a", "b"));
+        index.put(2, Arrays.asList("a"));
+        index.put(3, Arrays.asList("b"));
+        index.put(1, Arrays.asList("b", "b"));
+
+        assertArrayEquals(new int[]{3}, index.related(1, 10, 0, scratch).getIds());
+        assertArrayEquals(new int[0], index.related(2, 10, 0, scratch).getIds());
+    }
+
+    //This test case passes when a term found in more than the maximum share of the documents relates none of them.
+    @Test
+    public void skipCommonTerms() {
+        for (int id = 0; id < 1100; id++) {
+            index.put(id, Arrays.asList("common", "own" + id));
+        }
+        index.put(2000, Arrays.asList("common", "own0"));
+
+        assertArrayEquals(new int[]{0}, index.related(2000, 10, 0, scratch).getIds());
+        assertArrayEquals(new int[0], index.related(1, 10, 0, scratch).getIds());
+    }
+}